@@ -1,23 +1,23 @@
 package com.cherry.sme.tts;
 
+import android.app.ActivityManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.content.pm.ResolveInfo;
+import android.content.pm.ApplicationInfo;
 import android.media.AudioAttributes;
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioTrack;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
-import android.provider.Settings;
 import android.speech.tts.SynthesisCallback;
 import android.speech.tts.SynthesisRequest;
 import android.speech.tts.TextToSpeech;
@@ -25,14 +25,23 @@ import android.speech.tts.TextToSpeechService;
 import android.speech.tts.UtteranceProgressListener;
 import android.speech.tts.Voice;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 @SuppressWarnings("deprecation")
@@ -40,73 +49,141 @@ public class AutoTTSManagerService extends TextToSpeechService {
 
     private static final String CHANNEL_ID = "cherry_sme_tts_channel";
     private static final int NOTIFICATION_ID = 1001;
-    private volatile RemoteTextToSpeech shanEngine;
-    private volatile RemoteTextToSpeech burmeseEngine;
-    private volatile RemoteTextToSpeech englishEngine;
-    private final AtomicBoolean isShanReady = new AtomicBoolean(false);
-    private final AtomicBoolean isBurmeseReady = new AtomicBoolean(false);
-    private final AtomicBoolean isEnglishReady = new AtomicBoolean(false);
-    private volatile boolean isShanConfigured = false;
-    private volatile boolean isBurmeseConfigured = false;
-    private volatile boolean isEnglishConfigured = false;
+    private static final String PREF_LAZY_BINDING = "pref_lazy_binding";
+    private static final String PREF_IDLE_TTL_MS = "pref_engine_idle_ttl_ms";
+    private static final long DEFAULT_IDLE_TTL_MS = 5 * 60 * 1000L;
+    private static final int PREDICT_PREFIX_CHARS = 200;
+    private static final String PREF_PREWARM = "pref_prewarm_engines";
+    public static final String ACTION_RENDER_DOCUMENT = "com.cherry.sme.tts.action.RENDER_DOCUMENT";
+    public static final String ACTION_CANCEL_RENDER = "com.cherry.sme.tts.action.CANCEL_RENDER";
+    public static final String EXTRA_TEXT = "text";
+    public static final String EXTRA_INPUT_PATH = "input_path";
+    public static final String EXTRA_OUTPUT_PATH = "output_path";
+    public static final String EXTRA_WORKERS = "workers_per_engine";
+    public static final String EXTRA_SAMPLE_RATE = "sample_rate";
+    private volatile BatchRenderer activeRenderer;
+    private PcmPipeline pcmPipeline;
+    private volatile ClipStore clipStore;
+    private boolean clipStoreProbed;
+    private final Object clipStoreLock = new Object();
+    private static final String CLIP_DIR = "audio";
+    private final byte[] captureBuffer = new byte[16384];
+    private final EngineSlot shanSlot = new EngineSlot("SHAN", "Shan", "pref_engine_shan");
+    private final EngineSlot burmeseSlot = new EngineSlot("MYANMAR", "Burmese", "pref_engine_myanmar");
+    private final EngineSlot englishSlot = new EngineSlot("ENGLISH", "English", "pref_engine_english");
+    private final EngineSlot[] slots = {shanSlot, burmeseSlot, englishSlot};
+    private volatile boolean lazyBinding = true;
+    private final Runnable idleCheckRunnable = this::unbindIdleEngines;
+    private final LanguagePredictor languagePredictor = new LanguagePredictor();
+    private volatile long firstUtteranceId = -1;
+    private volatile long requestStartTime;
+    private volatile int firstChunkState;
+    private static final int FIRST_CHUNK_WARM = 0;
+    private static final int FIRST_CHUNK_PREWARMED = 1;
+    private static final int FIRST_CHUNK_COLD = 2;
     private SharedPreferences prefs;
     private final AtomicBoolean stopRequested = new AtomicBoolean(false);
     private final AtomicBoolean isDestroyed = new AtomicBoolean(false);
     private PowerManager.WakeLock cpuWakeLock;
     private PowerManager.WakeLock screenWakeLock;
-    private final AtomicInteger shanFailCount = new AtomicInteger(0);
-    private final AtomicInteger burmeseFailCount = new AtomicInteger(0);
-    private final AtomicInteger englishFailCount = new AtomicInteger(0);
+    private final HoldTimer cpuWakeHold = new HoldTimer();
+    private final HoldTimer screenWakeHold = new HoldTimer();
+    private final LatencyHistogram requestLatency = new LatencyHistogram("request");
+    private final LatencyHistogram firstAudioLatency = new LatencyHistogram("first audio");
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private final RequestAccounting accounting = new RequestAccounting();
+    private EngineRegistry engineRegistry;
+    private static final long HOT_SWAP_INIT_TIMEOUT_MS = 5000;
+    private static final long HOT_SWAP_RETRY_MS = 200;
+    private final ReentrantLock synthesisLock = new ReentrantLock();
+    private BroadcastReceiver packageReceiver;
     private static final int MAX_FAIL_BEFORE_REINIT = 1;
-    private HandlerThread watchdogThread;
-    private Handler watchdogHandler;
+    private final SynthesisExecutors executors = new SynthesisExecutors();
+    private ScheduledFuture<?> idleCheck;
     private final AtomicBoolean isKeepAliveRunning = new AtomicBoolean(false);
     private volatile long lastSpeechFinishedTime = 0;
-    private Thread keepAliveThread;
     private static final long KEEP_ALIVE_TIMEOUT_MS = 4000;
     private final ReentrantLock keepAliveLock = new ReentrantLock();
-    private final ConcurrentHashMap<String, CountDownLatch> utteranceLatches = new ConcurrentHashMap<>();
+    private final UtteranceTable utterances = new UtteranceTable(64);
+    private long lastOrphanCount;
     private final ReentrantLock engineInitLock = new ReentrantLock();
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefListener = (sp, key) -> {
+        for (EngineSlot slot : slots) {
+            if (slot.prefKey.equals(key) || EngineBenchmark.resultKey(slot.lang).equals(key)) {
+                executors.execute(SynthesisExecutors.LIFECYCLE, () -> hotSwapEngine(slot));
+            }
+        }
+    };
+    private volatile FakeDelegateEngine.Config fakeEngines;
+    private volatile long utteranceTimeoutOverrideMs = -1;
+    private final AtomicBoolean debugRunActive = new AtomicBoolean(false);
+    private volatile TraceRecorder traceRecorder;
 
     private final UtteranceProgressListener globalListener = new UtteranceProgressListener() {
         @Override
         public void onStart(String utteranceId) {
-            LogCollector.addLog("UTTERANCE", "Started: " + utteranceId);
+            long first = firstUtteranceId;
+            if (first > 0 && UtteranceTable.parseId(utteranceId) == first) {
+                firstUtteranceId = -1;
+                if (firstChunkState != FIRST_CHUNK_WARM) {
+                    boolean prewarmed = firstChunkState == FIRST_CHUNK_PREWARMED;
+                    long latency = SystemClock.elapsedRealtime() - requestStartTime;
+                    languagePredictor.recordFirstChunk(prewarmed, latency);
+                    firstAudioLatency.record(latency);
+                    LogCollector.addLog("PREWARM", "First chunk audio after " + latency + "ms"
+                            + (prewarmed ? " (prewarmed)" : " (cold)"));
+                }
+            }
         }
 
         @Override
         public void onDone(String utteranceId) {
-            LogCollector.addLog("UTTERANCE", "Completed: " + utteranceId);
-            releaseLatch(utteranceId);
+            lastSpeechFinishedTime = System.currentTimeMillis();
+            utterances.complete(utteranceId, false);
         }
 
         @Override
         public void onError(String utteranceId) {
-            LogCollector.addError("UTTERANCE", "Error on: " + utteranceId);
-            releaseLatch(utteranceId);
-        }
-
-        private void releaseLatch(String utteranceId) {
-            if (utteranceId == null) return;
-            CountDownLatch latch = utteranceLatches.remove(utteranceId);
-            if (latch != null) {
-                latch.countDown();
-            }
+            lastSpeechFinishedTime = System.currentTimeMillis();
+            utterances.complete(utteranceId, true);
         }
     };
 
     @Override
     public void onCreate() {
+        StartupTracer.begin(this);
+        StartupTracer.beginPhase("super.onCreate");
         super.onCreate();
         LogCollector.recordServiceStart();
         LogCollector.addLog("SERVICE", "onCreate() - API " + Build.VERSION.SDK_INT);
+        StartupTracer.beginPhase("prefs");
         prefs = PreferenceManager.getDefaultSharedPreferences(this);
-        TTSUtils.loadMapping(this);
-        LogCollector.addLog("SERVICE", "Word mapping loaded");
+        lazyBinding = prefs.getBoolean(PREF_LAZY_BINDING, true);
+        accounting.setAllocCounting(prefs.getBoolean(RequestAccounting.PREF_ALLOC_COUNTING, false));
+        StartupTracer.beginPhase("engineRegistry");
+        engineRegistry = EngineRegistry.get(this);
+        if (Build.VERSION.SDK_INT >= 26) {
+            try {
+                packageReceiver = new EngineRegistry.PackageChangeReceiver();
+                registerReceiver(packageReceiver, EngineRegistry.packageFilter());
+            } catch (Exception e) {
+                packageReceiver = null;
+                LogCollector.addError("ENGINE", "Package receiver registration failed", e);
+            }
+        }
+        StartupTracer.beginPhase("mapping");
+        executors.execute(SynthesisExecutors.IO, () -> {
+            TTSUtils.loadMapping(this);
+            LogCollector.addLog("SERVICE", "Word mapping loaded");
+            traceRecorder = TraceRecorder.open(this, prefs, executors.lane(SynthesisExecutors.IO));
+        });
 
+        StartupTracer.beginPhase("notificationChannel");
         createNotificationChannel();
+        StartupTracer.beginPhase("startForeground");
         promoteForeground();
 
+        StartupTracer.beginPhase("wakeLocks");
         PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         if (powerManager != null) {
             cpuWakeLock = powerManager.newWakeLock(
@@ -122,11 +199,47 @@ public class AutoTTSManagerService extends TextToSpeechService {
             screenWakeLock.setReferenceCounted(false);
             LogCollector.addLog("WAKELOCK", "Screen WakeLock created");
         }
-        watchdogThread = new HandlerThread("TTS-Watchdog");
-        watchdogThread.start();
-        watchdogHandler = new Handler(watchdogThread.getLooper());
-        LogCollector.addLog("SERVICE", "Watchdog thread started");
+        prefs.registerOnSharedPreferenceChangeListener(prefListener);
+        StartupTracer.beginPhase("engineBind");
         initAllEngines();
+        StartupTracer.finish(prefs.getLong(StartupTracer.PREF_BUDGET_MS, StartupTracer.DEFAULT_BUDGET_MS));
+    }
+
+    ClipStore getClipStore() {
+        ClipStore store = clipStore;
+        if (store != null) return store;
+        synchronized (clipStoreLock) {
+            if (clipStoreProbed || isDestroyed.get()) return clipStore;
+            clipStoreProbed = true;
+            try {
+                ClipPcmCache cache = new ClipPcmCache(ClipPcmCache.defaultBudget(this, prefs));
+                store = ClipStore.open(new File(getFilesDir(), CLIP_DIR), cache);
+                if (store != null) {
+                    LogCollector.addLog("CLIPS", "Clip pack opened: " + store.size() + " clips, cache budget "
+                            + cache.getBudget() / (1024 * 1024) + "MB");
+                }
+                clipStore = store;
+            } catch (Exception e) {
+                LogCollector.addError("CLIPS", "Failed to open clip pack", e);
+            }
+            return clipStore;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ClipStore store = clipStore;
+        if (store == null) return;
+        ClipPcmCache cache = store.getCache();
+        if (level >= TRIM_MEMORY_MODERATE) {
+            cache.trimTo(0);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimTo(cache.getBudget() / 2);
+        } else {
+            return;
+        }
+        LogCollector.addLog("CLIPS", "onTrimMemory(" + level + ") " + cache.getSummary());
     }
 
     private void createNotificationChannel() {
@@ -170,154 +283,470 @@ public class AutoTTSManagerService extends TextToSpeechService {
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         LogCollector.addLog("SERVICE", "onStartCommand flags=" + flags + " startId=" + startId);
+        if (intent != null && ACTION_RENDER_DOCUMENT.equals(intent.getAction())) {
+            startBatchRender(intent);
+        } else if (intent != null && ACTION_CANCEL_RENDER.equals(intent.getAction())) {
+            BatchRenderer renderer = activeRenderer;
+            if (renderer != null) renderer.cancel();
+        } else if (intent != null && LoadHarness.ACTION_LOAD_TEST.equals(intent.getAction())) {
+            startLoadTest(intent);
+        } else if (intent != null && TraceReplayer.ACTION_REPLAY_TRACE.equals(intent.getAction())) {
+            startTraceReplay(intent);
+        }
         return START_STICKY;
     }
 
+    private void startLoadTest(Intent intent) {
+        final FakeDelegateEngine.Config config = LoadHarness.configFromIntent(intent);
+        final int requests = intent.getIntExtra(LoadHarness.EXTRA_REQUESTS, LoadHarness.DEFAULT_REQUESTS);
+        final float stopProbability = intent.getFloatExtra(LoadHarness.EXTRA_STOP_PROBABILITY, LoadHarness.DEFAULT_STOP_PROBABILITY);
+        long timeoutMs = intent.getLongExtra(LoadHarness.EXTRA_TIMEOUT_MS, LoadHarness.DEFAULT_TIMEOUT_MS);
+        startDebugRun("LOADTEST", config, timeoutMs, () -> {
+            LogCollector.addLog("LOADTEST", "Starting " + requests + " requests against fake engines (seed " + config.seed + ")");
+            LoadHarness.Report report = new LoadHarness(this, config).run(requests, stopProbability);
+            LogCollector.addLog("LOADTEST", report.toString());
+            LogCollector.addLog("LOADTEST", utterances.getSummary());
+        });
+    }
+
+    private void startTraceReplay(Intent intent) {
+        String path = intent.getStringExtra(TraceReplayer.EXTRA_TRACE_PATH);
+        File file = null;
+        if (path != null) {
+            file = new File(path);
+        } else {
+            File[] traces = TraceRecorder.listTraces(this);
+            if (traces.length > 0) file = traces[traces.length - 1];
+        }
+        if (file == null || !file.isFile()) {
+            LogCollector.addError("TRACE", "No trace to replay");
+            return;
+        }
+        final File traceFile = file;
+        final float speed = intent.getFloatExtra(TraceReplayer.EXTRA_SPEED, 1.0f);
+        boolean fake = intent.getBooleanExtra(TraceReplayer.EXTRA_FAKE_ENGINES, false);
+        startDebugRun("TRACE", fake ? LoadHarness.configFromIntent(intent) : null,
+                fake ? intent.getLongExtra(LoadHarness.EXTRA_TIMEOUT_MS, LoadHarness.DEFAULT_TIMEOUT_MS) : -1, () -> {
+                    TraceReplayer.Trace trace;
+                    try {
+                        trace = TraceReplayer.read(traceFile);
+                    } catch (IOException e) {
+                        LogCollector.addError("TRACE", "Cannot read " + traceFile.getName(), e);
+                        return;
+                    }
+                    LogCollector.addLog("TRACE", "Replaying " + traceFile.getName() + ": " + trace.requests.size()
+                            + " requests" + (trace.truncated ? " (truncated)" : ""));
+                    TraceRecorder recorder = traceRecorder;
+                    traceRecorder = null;
+                    try {
+                        LogCollector.addLog("TRACE", TraceReplayer.replay(this, trace, speed));
+                    } finally {
+                        traceRecorder = recorder;
+                    }
+                });
+    }
+
+    private void startDebugRun(String tag, FakeDelegateEngine.Config fake, long timeoutMs, Runnable body) {
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            LogCollector.addWarn(tag, "Only available in debug builds");
+            return;
+        }
+        if (!debugRunActive.compareAndSet(false, true)) {
+            LogCollector.addWarn(tag, "A load test or replay is already running, request ignored");
+            return;
+        }
+        boolean queued = executors.execute(SynthesisExecutors.JOBS, () -> {
+            try {
+                utteranceTimeoutOverrideMs = timeoutMs;
+                if (fake != null) {
+                    fakeEngines = fake;
+                    initAllEngines();
+                }
+                body.run();
+            } catch (Exception e) {
+                LogCollector.addError(tag, "Debug run failed", e);
+            } finally {
+                utteranceTimeoutOverrideMs = -1;
+                if (fake != null) {
+                    fakeEngines = null;
+                    initAllEngines();
+                }
+                debugRunActive.set(false);
+            }
+        });
+        if (!queued) debugRunActive.set(false);
+    }
+
+    private void startBatchRender(Intent intent) {
+        final String outputPath = intent.getStringExtra(EXTRA_OUTPUT_PATH);
+        final String inputPath = intent.getStringExtra(EXTRA_INPUT_PATH);
+        final String inlineText = intent.getStringExtra(EXTRA_TEXT);
+        if (outputPath == null || (inputPath == null && inlineText == null)) {
+            LogCollector.addError("BATCH", "Render request needs output_path and text or input_path");
+            return;
+        }
+        if (activeRenderer != null) {
+            LogCollector.addWarn("BATCH", "A render is already running, request ignored");
+            return;
+        }
+        Map<String, String> packages = new HashMap<>();
+        for (EngineSlot slot : slots) {
+            packages.put(slot.lang, getBestEngine(slot));
+        }
+        final BatchRenderer renderer = new BatchRenderer(this, packages,
+                intent.getIntExtra(EXTRA_WORKERS, BatchRenderer.DEFAULT_WORKERS_PER_ENGINE),
+                intent.getIntExtra(EXTRA_SAMPLE_RATE, BatchRenderer.DEFAULT_OUTPUT_SAMPLE_RATE));
+        activeRenderer = renderer;
+        boolean queued = executors.execute(SynthesisExecutors.JOBS, () -> {
+            try {
+                String text = inlineText;
+                if (text == null) {
+                    byte[] data = new byte[(int) new File(inputPath).length()];
+                    DataInputStream in = new DataInputStream(new FileInputStream(inputPath));
+                    try { in.readFully(data); } finally { in.close(); }
+                    text = new String(data, "UTF-8");
+                }
+                renderer.render(text, new File(outputPath), new BatchRenderer.Listener() {
+                    private int lastLogged = -1;
+
+                    @Override
+                    public void onProgress(BatchRenderer.Progress progress) {
+                        if (progress.segmentsWritten < 0) return;
+                        int percent = progress.segmentsWritten * 100 / Math.max(1, progress.segmentsTotal);
+                        if (percent / 10 != lastLogged) {
+                            lastLogged = percent / 10;
+                            LogCollector.addLog("BATCH", "Progress " + percent + "% (" + progress.segmentsWritten + "/" + progress.segmentsTotal + ")");
+                        }
+                    }
+
+                    @Override
+                    public void onComplete(BatchRenderer.Metrics metrics) {
+                        LogCollector.addLog("BATCH", "Wrote " + outputPath);
+                    }
+
+                    @Override
+                    public void onError(String message, Throwable t) {
+                        LogCollector.addError("BATCH", "Render of " + outputPath + " failed: " + message);
+                    }
+                });
+            } catch (Exception e) {
+                LogCollector.addError("BATCH", "Cannot read " + inputPath, e);
+            } finally {
+                activeRenderer = null;
+            }
+        });
+        if (!queued) activeRenderer = null;
+    }
+
     private void initAllEngines() {
         engineInitLock.lock();
         try {
-            LogCollector.addLog("ENGINE", "initAllEngines() started");
+            LogCollector.addLog("ENGINE", "initAllEngines() started" + (lazyBinding ? " (lazy)" : ""));
             shutdownEngines();
-            isShanConfigured = false;
-            isBurmeseConfigured = false;
-            isEnglishConfigured = false;
-            isShanReady.set(false);
-            isBurmeseReady.set(false);
-            isEnglishReady.set(false);
-            shanFailCount.set(0);
-            burmeseFailCount.set(0);
-            englishFailCount.set(0);
-            String shanPkg = getBestEngine("pref_engine_shan");
-            LogCollector.addLog("ENGINE", "Shan engine: " + shanPkg);
+            for (EngineSlot slot : slots) {
+                slot.reset();
+            }
+            if (lazyBinding) {
+                LogCollector.addLog("ENGINE", "Lazy binding enabled, engines bind on first use");
+            } else {
+                for (EngineSlot slot : slots) {
+                    bindEngine(slot, false);
+                }
+            }
+            LogCollector.addLog("ENGINE", "initAllEngines() completed");
+        } finally {
+            engineInitLock.unlock();
+        }
+    }
+
+    private void bindEngine(EngineSlot slot, boolean reinit) {
+        engineInitLock.lock();
+        try {
+            if (isDestroyed.get()) return;
+            if (slot.engine != null) {
+                try { slot.engine.shutdown(); } catch (Exception e) {}
+                slot.engine = null;
+            }
+            slot.reset();
+            FakeDelegateEngine.Config fake = fakeEngines;
+            String pkg = fake != null ? FakeDelegateEngine.PACKAGE_PREFIX + slot.lang : getBestEngine(slot);
+            LogCollector.addLog("ENGINE", slot.label + " engine: " + pkg);
+            final String phase = reinit ? " reinit" : "";
+            final long availBefore = getAvailableMemory();
+            slot.packageName = pkg;
+            slot.bindStartTime = SystemClock.elapsedRealtime();
+            slot.bindCount.incrementAndGet();
             try {
-                shanEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
+                TextToSpeech.OnInitListener onInit = status -> {
+                    StartupTracer.markEngineInit(slot.label, status);
                     if (status == TextToSpeech.SUCCESS) {
-                        isShanReady.set(true);
-                        LogCollector.addLog("ENGINE", "Shan engine READY");
+                        slot.ready.set(true);
+                        if (slot.prewarmPending) {
+                            executors.execute(SynthesisExecutors.PREFETCH, () -> prewarmSlot(slot));
+                        }
+                        slot.lastBindLatencyMs = SystemClock.elapsedRealtime() - slot.bindStartTime;
+                        slot.bindLatency.record(slot.lastBindLatencyMs);
+                        long availAfter = getAvailableMemory();
+                        if (availBefore > 0 && availAfter > 0) {
+                            slot.lastMemoryDeltaKb = (availBefore - availAfter) / 1024;
+                        }
+                        LogCollector.addLog("ENGINE", slot.label + " engine" + phase + " READY in "
+                                + slot.lastBindLatencyMs + "ms (mem " + (slot.lastMemoryDeltaKb / 1024)
+                                + "MB, bound=" + countBoundEngines() + ")");
                     } else {
-                        LogCollector.addError("ENGINE", "Shan engine init FAILED status=" + status);
+                        LogCollector.addError("ENGINE", slot.label + " engine" + phase + " init FAILED status=" + status);
                     }
-                }, shanPkg);
-                shanEngine.setOnUtteranceProgressListener(globalListener);
+                    Runnable initDone = slot.onInitDone;
+                    if (initDone != null) initDone.run();
+                };
+                slot.engine = fake != null
+                        ? new FakeDelegateEngine(fake, onInit, pkg)
+                        : new RemoteTextToSpeech(getApplicationContext(), onInit, pkg);
+                slot.engine.setOnUtteranceProgressListener(globalListener);
             } catch (Exception e) {
-                shanEngine = null;
-                LogCollector.addError("ENGINE", "Shan engine creation failed", e);
+                slot.engine = null;
+                LogCollector.addError("ENGINE", slot.label + " engine creation failed", e);
+            }
+        } finally {
+            engineInitLock.unlock();
+        }
+    }
+
+    private void hotSwapEngine(EngineSlot slot) {
+        if (isDestroyed.get()) return;
+        String pkg = getBestEngine(slot);
+        if (pkg.equals(slot.packageName) && slot.engine != null) return;
+        if (slot.engine == null) {
+            LogCollector.addLog("ENGINE", slot.label + " engine set to " + pkg + ", binds on next use");
+            return;
+        }
+        LogCollector.addLog("ENGINE", "Hot-swapping " + slot.label + " engine " + slot.packageName + " -> " + pkg);
+        EngineSlot staging = new EngineSlot(slot.lang, slot.label, slot.prefKey);
+        AtomicBoolean handled = new AtomicBoolean(false);
+        Runnable finish = () -> {
+            if (handled.compareAndSet(false, true)
+                    && !executors.execute(SynthesisExecutors.LIFECYCLE, () -> finishHotSwap(slot, staging, pkg))) {
+                DelegateEngine fresh = staging.engine;
+                if (fresh != null) try { fresh.shutdown(); } catch (Exception e) {}
             }
-            String burPkg = getBestEngine("pref_engine_myanmar");
-            LogCollector.addLog("ENGINE", "Burmese engine: " + burPkg);
+        };
+        staging.onInitDone = finish;
+        bindEngine(staging, true);
+        if (staging.engine == null) {
+            finish.run();
+            return;
+        }
+        executors.schedule(SynthesisExecutors.LIFECYCLE, () -> {
+            if (handled.compareAndSet(false, true)) finishHotSwap(slot, staging, pkg);
+        }, HOT_SWAP_INIT_TIMEOUT_MS);
+    }
+
+    private void finishHotSwap(EngineSlot slot, EngineSlot staging, String pkg) {
+        DelegateEngine fresh = staging.engine;
+        if (fresh == null || !staging.ready.get() || isDestroyed.get()) {
+            LogCollector.addError("ENGINE", slot.label + " hot-swap to " + pkg + " failed"
+                    + (fresh != null && !staging.ready.get() ? " (not ready after " + HOT_SWAP_INIT_TIMEOUT_MS + "ms)" : "")
+                    + ", keeping " + slot.packageName);
+            if (fresh != null) try { fresh.shutdown(); } catch (Exception e) {}
+            return;
+        }
+        configureEngine(fresh, slot.lang, staging);
+        try {
+            Bundle params = new Bundle();
+            params.putFloat(TextToSpeech.Engine.KEY_PARAM_VOLUME, 0f);
+            fresh.speak("", TextToSpeech.QUEUE_ADD, params, "prewarm_" + slot.lang);
+        } catch (Exception e) {}
+        commitHotSwap(slot, staging, pkg);
+    }
+
+    private void commitHotSwap(EngineSlot slot, EngineSlot staging, String pkg) {
+        DelegateEngine fresh = staging.engine;
+        DelegateEngine old;
+        if (isDestroyed.get() || !pkg.equals(getBestEngine(slot))) {
+            old = fresh;
+        } else if (!synthesisLock.tryLock()) {
+            // A request is still speaking; retry later instead of parking the lifecycle lane.
             try {
-                burmeseEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
-                    if (status == TextToSpeech.SUCCESS) {
-                        isBurmeseReady.set(true);
-                        LogCollector.addLog("ENGINE", "Burmese engine READY");
-                    } else {
-                        LogCollector.addError("ENGINE", "Burmese engine init FAILED status=" + status);
-                    }
-                }, burPkg);
-                burmeseEngine.setOnUtteranceProgressListener(globalListener);
+                executors.schedule(SynthesisExecutors.LIFECYCLE, () -> commitHotSwap(slot, staging, pkg), HOT_SWAP_RETRY_MS);
+                return;
             } catch (Exception e) {
-                burmeseEngine = null;
-                LogCollector.addError("ENGINE", "Burmese engine creation failed", e);
+                old = fresh;
             }
-            String engPkg = getBestEngine("pref_engine_english");
-            LogCollector.addLog("ENGINE", "English engine: " + engPkg);
+        } else {
             try {
-                englishEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
-                    if (status == TextToSpeech.SUCCESS) {
-                        isEnglishReady.set(true);
-                        LogCollector.addLog("ENGINE", "English engine READY");
+                engineInitLock.lock();
+                try {
+                    if (isDestroyed.get() || !pkg.equals(getBestEngine(slot))) {
+                        old = fresh;
                     } else {
-                        LogCollector.addError("ENGINE", "English engine init FAILED status=" + status);
+                        old = slot.engine;
+                        slot.engine = fresh;
+                        slot.packageName = staging.packageName;
+                        slot.bindStartTime = staging.bindStartTime;
+                        slot.lastBindLatencyMs = staging.lastBindLatencyMs;
+                        slot.lastMemoryDeltaKb = staging.lastMemoryDeltaKb;
+                        slot.failCount.set(0);
+                        slot.configured = staging.configured;
+                        slot.ready.set(true);
+                        slot.bindCount.incrementAndGet();
+                        slot.bindLatency.record(staging.lastBindLatencyMs);
+                        slot.markUsed();
                     }
-                }, engPkg);
-                englishEngine.setOnUtteranceProgressListener(globalListener);
-            } catch (Exception e) {
-                englishEngine = null;
-                LogCollector.addError("ENGINE", "English engine creation failed", e);
+                } finally {
+                    engineInitLock.unlock();
+                }
+            } finally {
+                synthesisLock.unlock();
             }
-            LogCollector.addLog("ENGINE", "initAllEngines() completed");
-        } finally {
-            engineInitLock.unlock();
+        }
+        if (old != null) {
+            try { old.shutdown(); } catch (Exception e) {}
+        }
+        if (old == fresh) {
+            LogCollector.addWarn("ENGINE", slot.label + " preference changed again during hot-swap, discarded " + pkg);
+        } else {
+            LogCollector.addLog("ENGINE", slot.label + " engine hot-swapped to " + pkg + " (ready in "
+                    + staging.lastBindLatencyMs + "ms)");
         }
     }
 
     private void reinitSingleEngine(String lang) {
-        engineInitLock.lock();
         try {
             if (isDestroyed.get()) return;
             LogCollector.addWarn("ENGINE", "Reinitializing " + lang + " engine");
-            if ("SHAN".equals(lang)) {
-                if (shanEngine != null) {
-                    try { shanEngine.shutdown(); } catch (Exception e) {}
-                }
-                isShanReady.set(false);
-                isShanConfigured = false;
-                shanFailCount.set(0);
-                String pkg = getBestEngine("pref_engine_shan");
-                shanEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
-                    if (status == TextToSpeech.SUCCESS) {
-                        isShanReady.set(true);
-                        LogCollector.addLog("ENGINE", "Shan engine reinit READY");
-                    } else {
-                        LogCollector.addError("ENGINE", "Shan engine reinit FAILED");
-                    }
-                }, pkg);
-                shanEngine.setOnUtteranceProgressListener(globalListener);
-            } else if ("MYANMAR".equals(lang)) {
-                if (burmeseEngine != null) {
-                    try { burmeseEngine.shutdown(); } catch (Exception e) {}
-                }
-                isBurmeseReady.set(false);
-                isBurmeseConfigured = false;
-                burmeseFailCount.set(0);
-                String pkg = getBestEngine("pref_engine_myanmar");
-                burmeseEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
-                    if (status == TextToSpeech.SUCCESS) {
-                        isBurmeseReady.set(true);
-                        LogCollector.addLog("ENGINE", "Burmese engine reinit READY");
-                    } else {
-                        LogCollector.addError("ENGINE", "Burmese engine reinit FAILED");
-                    }
-                }, pkg);
-                burmeseEngine.setOnUtteranceProgressListener(globalListener);
-            } else if ("ENGLISH".equals(lang)) {
-                if (englishEngine != null) {
-                    try { englishEngine.shutdown(); } catch (Exception e) {}
+            bindEngine(getSlot(lang), true);
+        } catch (Exception e) {
+            LogCollector.addError("ENGINE", "reinitSingleEngine(" + lang + ") failed", e);
+        }
+    }
+
+    private void ensureEngineBound(String lang) {
+        EngineSlot slot = getSlot(lang);
+        slot.markUsed();
+        if (slot.engine != null || isDestroyed.get()) return;
+        engineInitLock.lock();
+        try {
+            if (slot.engine != null || isDestroyed.get()) return;
+            LogCollector.addLog("ENGINE", "Lazy bind " + slot.label + " engine on demand");
+            bindEngine(slot, false);
+        } finally {
+            engineInitLock.unlock();
+        }
+    }
+
+    private void prewarmEngines(List<String> langs) {
+        if (langs.isEmpty() || isDestroyed.get()) return;
+        executors.execute(SynthesisExecutors.PREFETCH, () -> {
+            for (String lang : langs) {
+                ensureEngineBound(lang);
+                EngineSlot slot = getSlot(lang);
+                if (slot.ready.get()) {
+                    prewarmSlot(slot);
+                } else {
+                    slot.prewarmPending = true;
                 }
-                isEnglishReady.set(false);
-                isEnglishConfigured = false;
-                englishFailCount.set(0);
-                String pkg = getBestEngine("pref_engine_english");
-                englishEngine = new RemoteTextToSpeech(getApplicationContext(), status -> {
-                    if (status == TextToSpeech.SUCCESS) {
-                        isEnglishReady.set(true);
-                        LogCollector.addLog("ENGINE", "English engine reinit READY");
-                    } else {
-                        LogCollector.addError("ENGINE", "English engine reinit FAILED");
-                    }
-                }, pkg);
-                englishEngine.setOnUtteranceProgressListener(globalListener);
             }
+        });
+    }
+
+    private void prewarmSlot(EngineSlot slot) {
+        slot.prewarmPending = false;
+        DelegateEngine engine = slot.engine;
+        if (engine == null || !slot.ready.get() || isDestroyed.get()) return;
+        boolean wasConfigured = slot.configured;
+        configureEngineIfNeeded(engine, slot.lang);
+        if (!wasConfigured) {
+            slot.lastPrewarmTime = SystemClock.elapsedRealtime();
+            try {
+                Bundle params = new Bundle();
+                params.putFloat(TextToSpeech.Engine.KEY_PARAM_VOLUME, 0f);
+                engine.speak("", TextToSpeech.QUEUE_ADD, params, "prewarm_" + slot.lang);
+            } catch (Exception e) {
+                LogCollector.addWarn("PREWARM", slot.label + " silent speak failed: " + e.getMessage());
+            }
+            LogCollector.addLog("PREWARM", slot.label + " engine prewarmed");
+        }
+    }
+
+    private void scheduleIdleCheck() {
+        if (!lazyBinding || isDestroyed.get()) return;
+        synchronized (executors) {
+            if (idleCheck != null) idleCheck.cancel(false);
+            try {
+                idleCheck = executors.schedule(SynthesisExecutors.LIFECYCLE, idleCheckRunnable, getIdleTtlMs());
+            } catch (Exception e) {
+                idleCheck = null;
+            }
+        }
+    }
+
+    private long getIdleTtlMs() {
+        try {
+            return Math.max(10000L, prefs.getLong(PREF_IDLE_TTL_MS, DEFAULT_IDLE_TTL_MS));
         } catch (Exception e) {
-            LogCollector.addError("ENGINE", "reinitSingleEngine(" + lang + ") failed", e);
+            return DEFAULT_IDLE_TTL_MS;
+        }
+    }
+
+    private void unbindIdleEngines() {
+        if (!lazyBinding || isDestroyed.get()) return;
+        if (utterances.inFlight() > 0 || !synthesisLock.tryLock()) {
+            scheduleIdleCheck();
+            return;
+        }
+        long ttl = getIdleTtlMs();
+        long now = System.currentTimeMillis();
+        boolean anyBound = false;
+        engineInitLock.lock();
+        try {
+            for (EngineSlot slot : slots) {
+                if (slot.engine == null) continue;
+                if (now - slot.lastUsedTime >= ttl && now - lastSpeechFinishedTime >= ttl) {
+                    try { slot.engine.shutdown(); } catch (Exception e) {}
+                    slot.engine = null;
+                    slot.reset();
+                    slot.idleUnbindCount.incrementAndGet();
+                    LogCollector.addLog("ENGINE", slot.label + " engine unbound after " + (ttl / 1000) + "s idle");
+                } else {
+                    anyBound = true;
+                }
+            }
         } finally {
             engineInitLock.unlock();
+            synthesisLock.unlock();
+        }
+        if (anyBound) scheduleIdleCheck();
+    }
+
+    private int countBoundEngines() {
+        int count = 0;
+        for (EngineSlot slot : slots) {
+            if (slot.engine != null) count++;
+        }
+        return count;
+    }
+
+    private long getAvailableMemory() {
+        try {
+            ActivityManager am = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+            if (am == null) return -1;
+            ActivityManager.MemoryInfo info = new ActivityManager.MemoryInfo();
+            am.getMemoryInfo(info);
+            return info.availMem;
+        } catch (Exception e) {
+            return -1;
         }
     }
 
     private void scheduleReinit(String lang) {
-        if (watchdogHandler != null && !isDestroyed.get()) {
+        if (!isDestroyed.get()) {
             LogCollector.addWarn("WATCHDOG", "Scheduling reinit for " + lang);
-            watchdogHandler.post(() -> reinitSingleEngine(lang));
+            executors.execute(SynthesisExecutors.LIFECYCLE, () -> reinitSingleEngine(lang));
         }
     }
 
     private void recordFailure(String lang) {
-        AtomicInteger counter;
-        if ("SHAN".equals(lang)) counter = shanFailCount;
-        else if ("MYANMAR".equals(lang)) counter = burmeseFailCount;
-        else counter = englishFailCount;
-        int count = counter.incrementAndGet();
+        int count = getSlot(lang).failCount.incrementAndGet();
         LogCollector.addError("SPEAK", lang + " failure #" + count);
         LogCollector.recordSpeakFailure();
         if (count >= MAX_FAIL_BEFORE_REINIT) {
@@ -326,16 +755,23 @@ public class AutoTTSManagerService extends TextToSpeechService {
     }
 
     private void recordSuccess(String lang) {
-        if ("SHAN".equals(lang)) shanFailCount.set(0);
-        else if ("MYANMAR".equals(lang)) burmeseFailCount.set(0);
-        else englishFailCount.set(0);
+        getSlot(lang).failCount.set(0);
         LogCollector.recordSpeakSuccess();
     }
 
-    private void configureEngineIfNeeded(RemoteTextToSpeech engine, String lang) {
+    private void configureEngineIfNeeded(DelegateEngine engine, String lang) {
         if (engine == null || isDestroyed.get()) return;
+        EngineSlot slot = getSlot(lang);
+        if (slot.configured) return;
+        synchronized (slot) {
+            if (slot.configured) return;
+            configureEngine(engine, lang, slot);
+        }
+    }
+
+    private void configureEngine(DelegateEngine engine, String lang, EngineSlot slot) {
         try {
-            if ("MYANMAR".equals(lang) && !isBurmeseConfigured) {
+            if ("MYANMAR".equals(lang)) {
                 LogCollector.addLog("CONFIG", "Configuring Burmese engine");
                 int res = engine.setLanguage(new Locale("mya"));
                 if (res < 0) res = engine.setLanguage(new Locale("mya", "MM"));
@@ -356,15 +792,15 @@ public class AutoTTSManagerService extends TextToSpeechService {
                 } catch (Exception e) {
                     LogCollector.addWarn("CONFIG", "Voice selection failed for Burmese");
                 }
-                isBurmeseConfigured = true;
-            } else if ("SHAN".equals(lang) && !isShanConfigured) {
+                slot.configured = true;
+            } else if ("SHAN".equals(lang)) {
                 LogCollector.addLog("CONFIG", "Configuring Shan engine (locale: shn)");
                 engine.setLanguage(new Locale("shn"));
-                isShanConfigured = true;
-            } else if ("ENGLISH".equals(lang) && !isEnglishConfigured) {
+                slot.configured = true;
+            } else if ("ENGLISH".equals(lang)) {
                 LogCollector.addLog("CONFIG", "Configuring English engine (locale: en_US)");
                 engine.setLanguage(Locale.US);
-                isEnglishConfigured = true;
+                slot.configured = true;
             }
         } catch (Exception e) {
             LogCollector.addError("CONFIG", "configureEngine(" + lang + ") failed", e);
@@ -378,8 +814,7 @@ public class AutoTTSManagerService extends TextToSpeechService {
             if (!isKeepAliveRunning.get() && !isDestroyed.get()) {
                 isKeepAliveRunning.set(true);
                 LogCollector.addLog("KEEPALIVE", "Starting keep-alive audio stream");
-                keepAliveThread = new Thread(() -> {
-                    android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                boolean queued = executors.execute(SynthesisExecutors.KEEP_ALIVE, () -> {
                     int minBufferSize = AudioTrack.getMinBufferSize(16000, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
                     if (minBufferSize <= 0) minBufferSize = 32000;
                     byte[] silenceBuffer = new byte[minBufferSize];
@@ -430,7 +865,7 @@ public class AutoTTSManagerService extends TextToSpeechService {
                         LogCollector.addLog("KEEPALIVE", "Keep-alive stopped");
                     }
                 });
-                keepAliveThread.start();
+                if (!queued) isKeepAliveRunning.set(false);
             }
         } finally {
             keepAliveLock.unlock();
@@ -439,6 +874,27 @@ public class AutoTTSManagerService extends TextToSpeechService {
 
     @Override
     protected void onSynthesizeText(SynthesisRequest request, SynthesisCallback callback) {
+        int rate = 100;
+        int pitch = 100;
+        int callerUid = -1;
+        try {
+            rate = request.getSpeechRate();
+            pitch = request.getPitch();
+            callerUid = request.getCallerUid();
+        } catch (Exception e) {}
+        synthesizeAs(request, callback, rate, pitch, callerUid);
+    }
+
+    void synthesizeAs(SynthesisRequest request, SynthesisCallback callback, int rate, int pitch, int callerUid) {
+        synthesisLock.lock();
+        try {
+            synthesize(request, callback, rate, pitch, callerUid);
+        } finally {
+            synthesisLock.unlock();
+        }
+    }
+
+    private void synthesize(SynthesisRequest request, SynthesisCallback callback, int speechRate, int speechPitch, int callerUid) {
         if (isDestroyed.get()) {
             LogCollector.addWarn("SYNTH", "Service destroyed, ignoring request");
             safeCallbackDone(callback);
@@ -458,6 +914,14 @@ public class AutoTTSManagerService extends TextToSpeechService {
             releaseWakeLocks();
             return;
         }
+        requestStartTime = SystemClock.elapsedRealtime();
+        RequestAccounting.Session session = accounting.begin();
+        firstUtteranceId = -1;
+        TraceRecorder recorder = traceRecorder;
+        long traceSeq = recorder != null ? recorder.recordRequest(text, callerUid, speechRate, speechPitch) : -1;
+        if (prefs.getBoolean(PREF_PREWARM, true)) {
+            prewarmEngines(languagePredictor.predict(callerUid));
+        }
         int textLen = text.length();
         String preview = text.length() > 50 ? text.substring(0, 50) + "..." : text;
         LogCollector.addLog("SYNTH", "Request: len=" + textLen + " text=\"" + preview + "\"");
@@ -465,6 +929,7 @@ public class AutoTTSManagerService extends TextToSpeechService {
             try {
                 long cpuTimeout = Math.max(120000L, text.length() * 300L);
                 cpuWakeLock.acquire(cpuTimeout);
+                cpuWakeHold.acquired(cpuTimeout);
                 LogCollector.addLog("WAKELOCK", "CPU acquired (" + cpuTimeout + "ms)");
             } catch (Exception e) {
                 LogCollector.addError("WAKELOCK", "CPU acquire failed", e);
@@ -474,6 +939,7 @@ public class AutoTTSManagerService extends TextToSpeechService {
             try {
                 long timeoutMs = Math.max(60000L, text.length() * 300L);
                 screenWakeLock.acquire(timeoutMs);
+                screenWakeHold.acquired(timeoutMs);
                 LogCollector.addLog("WAKELOCK", "Screen acquired (" + timeoutMs + "ms)");
             } catch (Exception e) {
                 LogCollector.addError("WAKELOCK", "Screen acquire failed", e);
@@ -482,31 +948,54 @@ public class AutoTTSManagerService extends TextToSpeechService {
         triggerKeepAlive();
         List<TTSUtils.Chunk> chunks = null;
         try {
-            chunks = TTSUtils.splitHelper(text);
+            chunks = buildChunks(parseMarkup(request, text));
         } catch (Exception e) {
             LogCollector.addError("SYNTH", "Text splitting failed", e);
         }
         if (chunks == null || chunks.isEmpty()) {
             LogCollector.addWarn("SYNTH", "No chunks after splitting");
+            if (recorder != null) recorder.recordEnd(traceSeq, SystemClock.elapsedRealtime() - requestStartTime);
             safeCallbackDone(callback);
             lastSpeechFinishedTime = System.currentTimeMillis();
             releaseWakeLocks();
+            accounting.finish(session, textLen, chunks);
             return;
         }
         LogCollector.addLog("SYNTH", "Split into " + chunks.size() + " chunks");
+        languagePredictor.record(callerUid, chunks);
         Bundle params = new Bundle();
         AudioAttributes audioAttributes = new AudioAttributes.Builder()
                 .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
                 .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
                 .build();
         params.putParcelable("audioAttributes", audioAttributes);
-        float rate = 1.0f;
-        float pitch = 1.0f;
-        try {
-            rate = request.getSpeechRate() / 100.0f;
-            pitch = request.getPitch() / 100.0f;
-        } catch (Exception e) {}
+        float rate = speechRate / 100.0f;
+        float pitch = speechPitch / 100.0f;
         LogCollector.addLog("SYNTH", "Rate=" + rate + " Pitch=" + pitch);
+        boolean firstSpeak = true;
+        Future<?> lastStream = null;
+        PcmPipeline pipeline = null;
+        PcmPipeline.Sink sink = null;
+        if (prefs.getBoolean(PcmPipeline.PREF_CAPTURE, false)) {
+            try {
+                pcmPipeline = PcmPipeline.fromPreferences(prefs, pcmPipeline);
+                if (callback.start(pcmPipeline.getOutputRate(), AudioFormat.ENCODING_PCM_16BIT, 1) == TextToSpeech.SUCCESS) {
+                    pipeline = pcmPipeline;
+                    pipeline.begin();
+                    if (prefs.getBoolean(TimeStretcher.PREF_ENABLED, false)) {
+                        pipeline.setTempo(rate);
+                        rate = 1.0f;
+                    } else {
+                        pipeline.setTempo(1.0f);
+                    }
+                    sink = callbackSink(callback);
+                } else {
+                    LogCollector.addWarn("PCM", "callback.start() failed, falling back to direct playback");
+                }
+            } catch (Exception e) {
+                LogCollector.addError("PCM", "Capture setup failed", e);
+            }
+        }
         try {
             for (int i = 0; i < chunks.size(); i++) {
                 if (stopRequested.get() || isDestroyed.get()) {
@@ -515,22 +1004,45 @@ public class AutoTTSManagerService extends TextToSpeechService {
                 }
                 lastSpeechFinishedTime = System.currentTimeMillis();
                 TTSUtils.Chunk chunk = chunks.get(i);
+                if (chunk != null && chunk.breakMs >= 0) {
+                    if (pipeline == null) session.beginWait();
+                    Future<?> queued = insertBreak(chunk.breakMs, pipeline);
+                    session.endWait();
+                    if (queued != null) lastStream = queued;
+                    continue;
+                }
                 if (chunk == null || chunk.text == null || chunk.text.trim().isEmpty()) continue;
-                RemoteTextToSpeech targetEngine = getEngineByLang(chunk.lang);
+                long chunkStart = SystemClock.elapsedRealtime();
+                if (lazyBinding) ensureEngineBound(chunk.lang);
+                DelegateEngine targetEngine = getEngineByLang(chunk.lang);
                 if (targetEngine == null) {
                     LogCollector.addError("SYNTH", "No engine for " + chunk.lang + " (null)");
                     scheduleReinit(chunk.lang);
                     continue;
                 }
-                if (!waitForEngine(chunk.lang)) {
+                session.beginWait();
+                boolean engineReady = waitForEngine(chunk.lang);
+                session.endWait();
+                if (!engineReady) {
                     LogCollector.addError("SYNTH", chunk.lang + " engine not ready (timeout)");
                     recordFailure(chunk.lang);
+                    if (recorder != null) {
+                        recorder.recordChunk(traceSeq, chunk.lang, chunk.text.length(),
+                                SystemClock.elapsedRealtime() - chunkStart, 0, TraceRecorder.NOT_READY);
+                    }
                     continue;
                 }
+                long waitMs = SystemClock.elapsedRealtime() - chunkStart;
+                if (firstSpeak) {
+                    EngineSlot slot = getSlot(chunk.lang);
+                    if (slot.lastPrewarmTime >= requestStartTime) firstChunkState = FIRST_CHUNK_PREWARMED;
+                    else if (!slot.configured) firstChunkState = FIRST_CHUNK_COLD;
+                    else firstChunkState = FIRST_CHUNK_WARM;
+                }
                 configureEngineIfNeeded(targetEngine, chunk.lang);
                 try {
-                    targetEngine.setSpeechRate(rate);
-                    targetEngine.setPitch(pitch);
+                    targetEngine.setSpeechRate(rate * chunk.rate);
+                    targetEngine.setPitch(pitch * chunk.pitch);
                 } catch (Exception e) {}
                 int maxLen = 3500;
                 int chunkTextLen = chunk.text.length();
@@ -539,64 +1051,282 @@ public class AutoTTSManagerService extends TextToSpeechService {
                     if (stopRequested.get() || isDestroyed.get()) break;
                     int endIndex = Math.min(startIndex + maxLen, chunkTextLen);
                     if (endIndex < chunkTextLen) {
-                        int breakPoint = -1;
-                        for (int j = endIndex - 1; j >= startIndex && j > startIndex + (maxLen - 500); j--) {
-                            char c = chunk.text.charAt(j);
-                            if (c == ' ' || c == '\n' || c == '\u104A' || c == '\u104B' || c == '.' || c == ',') {
-                                breakPoint = j + 1;
-                                break;
-                            }
-                        }
-                        if (breakPoint != -1) {
-                            endIndex = breakPoint;
-                        }
+                        endIndex = TTSUtils.findCutPoint(chunk.text, startIndex, endIndex, startIndex + (maxLen - 500));
                     }
                     String subText = chunk.text.substring(startIndex, endIndex);
                     startIndex = endIndex;
-                    String utteranceId = "utt_" + System.nanoTime();
+                    long timeout = utteranceTimeout(subText.length());
+                    long utteranceSeq = utterances.register(timeout);
+                    String utteranceId = Long.toString(utteranceSeq);
                     params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
-                    CountDownLatch latch = new CountDownLatch(1);
-                    utteranceLatches.put(utteranceId, latch);
+                    if (firstSpeak) {
+                        firstSpeak = false;
+                        firstUtteranceId = utteranceSeq;
+                    }
                     int result = TextToSpeech.ERROR;
+                    long speakStart = SystemClock.elapsedRealtime();
+                    File captureFile = pipeline != null ? new File(getCacheDir(), "capture_" + utteranceId + ".wav") : null;
                     try {
-                        result = targetEngine.speak(subText, TextToSpeech.QUEUE_ADD, params, utteranceId);
+                        if (captureFile != null) {
+                            result = targetEngine.synthesizeToFile(subText, params, captureFile, utteranceId);
+                        } else {
+                            result = targetEngine.speak(subText, TextToSpeech.QUEUE_ADD, params, utteranceId);
+                        }
                     } catch (Exception e) {
-                        utteranceLatches.remove(utteranceId);
+                        utterances.release(utteranceSeq);
                         LogCollector.addError("SYNTH", "speak() threw exception for " + chunk.lang, e);
                         recordFailure(chunk.lang);
+                        if (recorder != null) recorder.recordChunk(traceSeq, chunk.lang, subText.length(), waitMs, 0, TraceRecorder.REJECTED);
                         break;
                     }
                     if (result == TextToSpeech.ERROR) {
-                        utteranceLatches.remove(utteranceId);
+                        utterances.release(utteranceSeq);
                         LogCollector.addError("SYNTH", "speak() returned ERROR for " + chunk.lang);
                         recordFailure(chunk.lang);
+                        if (recorder != null) recorder.recordChunk(traceSeq, chunk.lang, subText.length(), waitMs, 0, TraceRecorder.REJECTED);
                         break;
                     }
                     LogCollector.addLog("SYNTH", "speak() OK " + chunk.lang + " len=" + subText.length());
                     try {
-                        long timeout = Math.max(30000L, subText.length() * 300L);
-                        boolean done = latch.await(timeout, TimeUnit.MILLISECONDS);
-                        if (!done && !stopRequested.get() && !isDestroyed.get()) {
-                            utteranceLatches.remove(utteranceId);
+                        session.beginWait();
+                        int outcome;
+                        try {
+                            outcome = utterances.await(utteranceSeq, timeout);
+                        } finally {
+                            session.endWait();
+                        }
+                        if (recorder != null) {
+                            recorder.recordChunk(traceSeq, chunk.lang, subText.length(), waitMs,
+                                    SystemClock.elapsedRealtime() - speakStart, outcome);
+                        }
+                        waitMs = 0;
+                        if (outcome == UtteranceTable.TIMEOUT && !stopRequested.get() && !isDestroyed.get()) {
                             LogCollector.addError("SYNTH", "Timeout waiting for " + chunk.lang);
                             try { targetEngine.stop(); } catch (Exception e) {}
                             recordFailure(chunk.lang);
-                        } else if (done) {
+                        } else if (outcome == UtteranceTable.ERROR) {
+                            LogCollector.addError("SYNTH", chunk.lang + " engine reported an error");
+                        } else if (outcome == UtteranceTable.DONE) {
                             recordSuccess(chunk.lang);
+                            getSlot(chunk.lang).speakLatency.record(SystemClock.elapsedRealtime() - speakStart);
+                            if (captureFile != null && !stopRequested.get()) {
+                                lastStream = queueCapturedAudio(captureFile, chunk.lang, pipeline, sink);
+                                captureFile = null;
+                            }
                         }
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         stopRequested.set(true);
+                    } finally {
+                        if (captureFile != null) captureFile.delete();
                     }
                 }
             }
         } catch (Exception e) {
             LogCollector.addError("SYNTH", "Unexpected error in synthesis loop", e);
         } finally {
+            if (lastStream != null) {
+                try {
+                    lastStream.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {}
+            }
+            if (pipeline != null) {
+                try {
+                    pipeline.finish(sink);
+                    LogCollector.addLog("PCM", pipeline.getSummary());
+                } catch (Exception e) {
+                    LogCollector.addError("PCM", "Pipeline flush failed", e);
+                }
+            }
             safeCallbackDone(callback);
             lastSpeechFinishedTime = System.currentTimeMillis();
             releaseWakeLocks();
-            LogCollector.addLog("SYNTH", "Request completed");
+            scheduleIdleCheck();
+            long requestMs = SystemClock.elapsedRealtime() - requestStartTime;
+            requestLatency.record(requestMs);
+            if (recorder != null) recorder.recordEnd(traceSeq, requestMs);
+            long orphans = utterances.getOrphans();
+            if (orphans != lastOrphanCount) {
+                lastOrphanCount = orphans;
+                LogCollector.addWarn("UTTERANCE", "Orphaned utterances: " + utterances.getSummary());
+            }
+            LogCollector.addLog("SYNTH", "Request completed (" + accounting.finish(session, textLen, chunks) + ")");
+        }
+    }
+
+    private List<MarkupSegmenter.Segment> parseMarkup(SynthesisRequest request, String text) {
+        if (!prefs.getBoolean(MarkupSegmenter.PREF_ENABLED, true)) return MarkupSegmenter.plain(text);
+        CharSequence input = text;
+        try {
+            CharSequence spanned = request.getCharSequenceText();
+            if (spanned != null) input = spanned;
+        } catch (Exception e) {}
+        try {
+            List<MarkupSegmenter.Segment> segments = MarkupSegmenter.parse(input);
+            if (segments.size() > 1 || (segments.size() == 1 && segments.get(0).lang != null)) {
+                LogCollector.addLog("MARKUP", "Markup parsed into " + segments.size() + " segments");
+            }
+            return segments;
+        } catch (Exception e) {
+            LogCollector.addError("MARKUP", "Markup parsing failed", e);
+            return MarkupSegmenter.plain(text);
+        }
+    }
+
+    private List<TTSUtils.Chunk> buildChunks(List<MarkupSegmenter.Segment> segments) {
+        boolean zawgyi = prefs.getBoolean(ZawgyiConverter.PREF_ENABLED, true);
+        ChunkCoalescer.CostModel costModel = ChunkCoalescer.CostModel.fromPreferences(prefs);
+        SegmentationCache cache = TTSUtils.getSegmentationCache();
+        List<TTSUtils.Chunk> chunks = new ArrayList<>();
+        int predicted = 0;
+        int switchesSaved = 0;
+        int cacheHits = 0;
+        for (MarkupSegmenter.Segment segment : segments) {
+            if (segment.isBreak()) {
+                TTSUtils.Chunk pause = new TTSUtils.Chunk("", null);
+                pause.breakMs = segment.breakMs;
+                chunks.add(pause);
+                continue;
+            }
+            String segmentText = segment.text;
+            if (zawgyi) {
+                try {
+                    String normalized = ZawgyiConverter.normalize(segmentText);
+                    if (normalized != segmentText) {
+                        LogCollector.addLog("SYNTH", "Zawgyi text converted to Unicode");
+                        segmentText = normalized;
+                    }
+                } catch (Exception e) {
+                    LogCollector.addError("SYNTH", "Zawgyi conversion failed", e);
+                }
+            }
+            SegmentationCache.Hit hit = segment.lang == null ? cache.get(segmentText, costModel.key()) : null;
+            if (lazyBinding && predicted < PREDICT_PREFIX_CHARS) {
+                if (segment.lang != null) {
+                    ensureEngineBound(segment.lang);
+                } else if (hit != null) {
+                    for (TTSUtils.Chunk chunk : hit.chunks) ensureEngineBound(chunk.lang);
+                } else {
+                    for (String lang : TTSUtils.predictLanguages(segmentText, PREDICT_PREFIX_CHARS - predicted)) {
+                        ensureEngineBound(lang);
+                    }
+                }
+                predicted += segmentText.length();
+            }
+            List<TTSUtils.Chunk> part;
+            if (segment.lang != null) {
+                part = new ArrayList<>(1);
+                part.add(new TTSUtils.Chunk(segmentText, segment.lang));
+            } else if (hit != null) {
+                part = hit.chunks;
+                switchesSaved += hit.switchesSaved;
+                cacheHits++;
+            } else {
+                int generation = cache.generation();
+                part = TTSUtils.splitHelper(segmentText);
+                int saved = 0;
+                try {
+                    ChunkCoalescer.Result coalesced = ChunkCoalescer.coalesce(part, costModel);
+                    if (coalesced.switchesSaved > 0) {
+                        part = coalesced.chunks;
+                        saved = coalesced.switchesSaved;
+                    }
+                } catch (Exception e) {
+                    LogCollector.addError("SYNTH", "Chunk coalescing failed", e);
+                }
+                switchesSaved += saved;
+                cache.put(segmentText, costModel.key(), generation, part, saved);
+            }
+            for (TTSUtils.Chunk chunk : part) {
+                chunk.rate = segment.rate;
+                chunk.pitch = segment.pitch;
+                chunks.add(chunk);
+            }
+        }
+        if (switchesSaved > 0) {
+            LogCollector.addLog("SYNTH", "Coalesced chunks (saved " + switchesSaved + " switches)");
+        }
+        if (cacheHits > 0) {
+            LogCollector.addLog("SYNTH", "Segmentation cache hit (" + cache.getSummary() + ")");
+        }
+        return chunks;
+    }
+
+    private Future<?> insertBreak(int ms, PcmPipeline pipeline) {
+        if (pipeline != null) {
+            Runnable task = () -> pipeline.insertBreak(ms);
+            Future<?> future = executors.lane(SynthesisExecutors.REALTIME).submit(task);
+            if (future.isCancelled()) task.run();
+            return future;
+        }
+        long end = SystemClock.elapsedRealtime() + ms;
+        while (!stopRequested.get() && !isDestroyed.get()) {
+            long remaining = end - SystemClock.elapsedRealtime();
+            if (remaining <= 0) break;
+            try {
+                Thread.sleep(Math.min(50, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopRequested.set(true);
+            }
+        }
+        return null;
+    }
+
+    private PcmPipeline.Sink callbackSink(final SynthesisCallback callback) {
+        final int maxBuffer = Math.max(512, callback.getMaxBufferSize());
+        return (buffer, offset, length) -> {
+            while (length > 0) {
+                int n = Math.min(maxBuffer, length);
+                if (callback.audioAvailable(buffer, offset, n) != TextToSpeech.SUCCESS) {
+                    stopRequested.set(true);
+                    return;
+                }
+                offset += n;
+                length -= n;
+            }
+        };
+    }
+
+    private Future<?> queueCapturedAudio(final File file, final String lang, final PcmPipeline pipeline, final PcmPipeline.Sink sink) {
+        Runnable task = () -> {
+            try {
+                if (!stopRequested.get()) streamCapturedAudio(file, lang, pipeline, sink);
+            } finally {
+                file.delete();
+            }
+        };
+        Future<?> future = executors.lane(SynthesisExecutors.REALTIME).submit(task);
+        if (future.isCancelled()) task.run();
+        return future;
+    }
+
+    private void streamCapturedAudio(File file, String lang, PcmPipeline pipeline, PcmPipeline.Sink sink) {
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file));
+            WavIO.Format fmt = WavIO.readHeader(in);
+            if (fmt.bitsPerSample != 16) {
+                LogCollector.addWarn("PCM", lang + " produced " + fmt.bitsPerSample + "-bit audio, skipped");
+                return;
+            }
+            pipeline.startSegment(fmt.sampleRate, fmt.channels, lang);
+            long remaining = fmt.dataLength;
+            int n;
+            while (remaining > 0 && !stopRequested.get()
+                    && (n = in.read(captureBuffer, 0, (int) Math.min(captureBuffer.length, remaining))) > 0) {
+                pipeline.process(captureBuffer, 0, n, sink);
+                remaining -= n;
+            }
+            pipeline.endSegment();
+        } catch (Exception e) {
+            LogCollector.addError("PCM", "Failed to stream captured " + lang + " audio", e);
+        } finally {
+            if (in != null) {
+                try { in.close(); } catch (Exception e) {}
+            }
         }
     }
 
@@ -610,13 +1340,20 @@ public class AutoTTSManagerService extends TextToSpeechService {
         }
     }
 
+    private long utteranceTimeout(int length) {
+        long override = utteranceTimeoutOverrideMs;
+        return override > 0 ? override : Math.max(30000L, length * 300L);
+    }
+
     private boolean waitForEngine(String lang) {
+        EngineSlot slot = getSlot(lang);
         long timeout = 2500;
+        if (lazyBinding && SystemClock.elapsedRealtime() - slot.bindStartTime < 5000) {
+            timeout = 5000;
+        }
         long start = System.currentTimeMillis();
         while (System.currentTimeMillis() - start < timeout && !stopRequested.get() && !isDestroyed.get()) {
-            if ("SHAN".equals(lang) && isShanReady.get()) return true;
-            if ("MYANMAR".equals(lang) && isBurmeseReady.get()) return true;
-            if ("ENGLISH".equals(lang) && isEnglishReady.get()) return true;
+            if (slot.ready.get()) return true;
             try {
                 Thread.sleep(50);
             } catch (InterruptedException e) {
@@ -631,40 +1368,33 @@ public class AutoTTSManagerService extends TextToSpeechService {
     protected void onStop() {
         LogCollector.addLog("SYNTH", "onStop() called");
         stopRequested.set(true);
-        for (CountDownLatch latch : utteranceLatches.values()) {
-            try { latch.countDown(); } catch (Exception e) {}
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) recorder.recordStop();
+        utterances.cancelAll();
+        for (EngineSlot slot : slots) {
+            DelegateEngine engine = slot.engine;
+            try { if (engine != null) engine.stop(); } catch (Exception e) {}
         }
-        utteranceLatches.clear();
-        try { if (shanEngine != null) shanEngine.stop(); } catch (Exception e) {}
-        try { if (burmeseEngine != null) burmeseEngine.stop(); } catch (Exception e) {}
-        try { if (englishEngine != null) englishEngine.stop(); } catch (Exception e) {}
         releaseWakeLocks();
     }
 
-    private RemoteTextToSpeech getEngineByLang(String lang) {
-        if ("SHAN".equals(lang)) return shanEngine;
-        if ("MYANMAR".equals(lang)) return burmeseEngine;
-        return englishEngine;
+    private EngineSlot getSlot(String lang) {
+        if ("SHAN".equals(lang)) return shanSlot;
+        if ("MYANMAR".equals(lang)) return burmeseSlot;
+        return englishSlot;
     }
 
-    private String getBestEngine(String prefKey) {
-        try {
-            String pkg = prefs.getString(prefKey, null);
-            if (pkg != null && !pkg.isEmpty() && !pkg.equals(getPackageName())) return pkg;
-        } catch (Exception e) {}
-        try {
-            String sysDef = Settings.Secure.getString(getContentResolver(), "tts_default_synth");
-            if (sysDef != null && !sysDef.equals(getPackageName())) return sysDef;
-        } catch (Exception e) {}
+    private DelegateEngine getEngineByLang(String lang) {
+        return getSlot(lang).engine;
+    }
+
+    private String getBestEngine(EngineSlot slot) {
+        String pkg = null;
         try {
-            Intent intent = new Intent(TextToSpeech.Engine.INTENT_ACTION_TTS_SERVICE);
-            List<ResolveInfo> services = getPackageManager().queryIntentServices(intent, 0);
-            for (ResolveInfo info : services) {
-                String p = info.serviceInfo.packageName;
-                if (!p.equals(getPackageName()) && !p.contains("samsung")) return p;
-            }
+            pkg = prefs.getString(slot.prefKey, null);
+            if (pkg == null) pkg = EngineBenchmark.recommended(prefs, slot.lang, engineRegistry.getEngines());
         } catch (Exception e) {}
-        return "com.google.android.tts";
+        return engineRegistry.resolve(pkg);
     }
 
     private void releaseWakeLocks() {
@@ -674,14 +1404,16 @@ public class AutoTTSManagerService extends TextToSpeechService {
         if (screenWakeLock != null && screenWakeLock.isHeld()) {
             try { screenWakeLock.release(); } catch (Exception e) {}
         }
+        cpuWakeHold.released();
+        screenWakeHold.released();
     }
 
     private void shutdownEngines() {
         engineInitLock.lock();
         try {
-            if (shanEngine != null) { try { shanEngine.shutdown(); } catch (Exception e) {} shanEngine = null; }
-            if (burmeseEngine != null) { try { burmeseEngine.shutdown(); } catch (Exception e) {} burmeseEngine = null; }
-            if (englishEngine != null) { try { englishEngine.shutdown(); } catch (Exception e) {} englishEngine = null; }
+            for (EngineSlot slot : slots) {
+                if (slot.engine != null) { try { slot.engine.shutdown(); } catch (Exception e) {} slot.engine = null; }
+            }
         } finally {
             engineInitLock.unlock();
         }
@@ -693,21 +1425,161 @@ public class AutoTTSManagerService extends TextToSpeechService {
         isDestroyed.set(true);
         stopRequested.set(true);
         isKeepAliveRunning.set(false);
-        if (keepAliveThread != null) {
-            keepAliveThread.interrupt();
-            try { keepAliveThread.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-        }
+        if (prefs != null) prefs.unregisterOnSharedPreferenceChangeListener(prefListener);
+        BatchRenderer renderer = activeRenderer;
+        if (renderer != null) renderer.cancel();
         shutdownEngines();
         releaseWakeLocks();
-        if (watchdogThread != null) {
-            try { watchdogThread.quitSafely(); } catch (Exception e) {}
-            try { watchdogThread.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        if (packageReceiver != null) {
+            try { unregisterReceiver(packageReceiver); } catch (Exception e) {}
+            packageReceiver = null;
         }
+        synchronized (clipStoreLock) {
+            ClipStore store = clipStore;
+            if (store != null) {
+                LogCollector.addLog("CLIPS", store.getCache().getSummary());
+                store.close();
+                clipStore = null;
+            }
+        }
+        LogCollector.addLog("EXECUTOR", executors.getSummary());
+        LogCollector.addLog("SYNTH", TTSUtils.getSegmentationCache().getSummary());
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) {
+            LogCollector.addLog("TRACE", recorder.getSummary());
+            recorder.close();
+            traceRecorder = null;
+        }
+        executors.shutdown(1000);
+        accounting.setAllocCounting(false);
         try { stopForeground(true); } catch (Exception e) {}
         LogCollector.addLog("SERVICE", "Service destroyed");
         super.onDestroy();
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter pw, String[] args) {
+        boolean compact = false;
+        if (args != null) {
+            for (String arg : args) {
+                if ("--compact".equals(arg) || "-c".equals(arg)) compact = true;
+            }
+        }
+        if (compact) dumpCompact(pw);
+        else dumpFull(pw);
+        pw.flush();
+    }
+
+    private void dumpFull(PrintWriter pw) {
+        pw.println("Cherry SME TTS service");
+        pw.println("  uptime=" + (SystemClock.elapsedRealtime() - createdAt) / 1000 + "s destroyed=" + isDestroyed.get()
+                + " lazyBinding=" + lazyBinding + " capture=" + prefs.getBoolean(PcmPipeline.PREF_CAPTURE, false));
+        pw.println("  requests=" + LogCollector.getTotalSpeakRequests() + " speakOk=" + LogCollector.getSuccessfulSpeaks()
+                + " speakFailed=" + LogCollector.getFailedSpeaks() + " errorsLogged=" + LogCollector.getErrorCount());
+        pw.println("Engines: " + engineRegistry.getSummary());
+        for (EngineSlot slot : slots) {
+            pw.println("  " + slot.describe() + " fails=" + slot.failCount.get() + " configured=" + slot.configured);
+            pw.println("    " + slot.bindLatency.getSummary());
+            pw.println("    " + slot.speakLatency.getSummary());
+            slot.speakLatency.dumpBuckets(pw, "      ");
+        }
+        pw.println("Engine benchmark:");
+        EngineBenchmark.dump(prefs, pw, "  ");
+        pw.println("Latency:");
+        pw.println("  " + requestLatency.getSummary());
+        requestLatency.dumpBuckets(pw, "    ");
+        pw.println("  " + firstAudioLatency.getSummary());
+        firstAudioLatency.dumpBuckets(pw, "    ");
+        pw.println("  prediction: " + languagePredictor.getSummary());
+        pw.println("Queues:");
+        for (String line : executors.getSummary().split("\n")) pw.println("  " + line);
+        pw.println("  utterances: " + utterances.getSummary());
+        pw.println("Accounting (per request avg):");
+        accounting.dump(pw, "  ");
+        pw.println("Caches:");
+        pw.println("  " + TTSUtils.getSegmentationCache().getSummary());
+        ClipStore store = clipStore;
+        pw.println("  clips: " + (store != null ? store.getCache().getSummary() : "no clip pack"));
+        PcmPipeline pipeline = pcmPipeline;
+        if (pipeline != null) pw.println("  pcm: " + pipeline.getSummary());
+        pw.println("Wake locks:");
+        pw.println("  cpu: " + cpuWakeHold.getSummary());
+        pw.println("  screen: " + screenWakeHold.getSummary());
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) pw.println("Trace: " + recorder.getSummary());
+    }
+
+    private void dumpCompact(PrintWriter pw) {
+        pw.println("uptime_ms=" + (SystemClock.elapsedRealtime() - createdAt));
+        pw.println("requests=" + LogCollector.getTotalSpeakRequests());
+        pw.println("speak_ok=" + LogCollector.getSuccessfulSpeaks());
+        pw.println("speak_failed=" + LogCollector.getFailedSpeaks());
+        for (EngineSlot slot : slots) {
+            String key = "engine." + slot.lang.toLowerCase(Locale.US);
+            pw.println(key + ".state=" + slot.state());
+            pw.println(key + ".package=" + slot.packageName);
+            pw.println(key + ".fails=" + slot.failCount.get());
+            pw.println(key + ".binds=" + slot.bindCount.get());
+            pw.println(key + ".idle_unbinds=" + slot.idleUnbindCount.get());
+            slot.bindLatency.dumpCompact(pw, key + ".bind");
+            slot.speakLatency.dumpCompact(pw, key + ".speak");
+        }
+        requestLatency.dumpCompact(pw, "latency.request");
+        firstAudioLatency.dumpCompact(pw, "latency.first_audio");
+        int[] depths = executors.getDepths();
+        for (int i = 0; i < depths.length; i++) {
+            pw.println("queue." + executors.lane(i).name.toLowerCase(Locale.US) + ".depth=" + depths[i]);
+        }
+        pw.println("utterances.orphans=" + utterances.getOrphans());
+        accounting.dumpCompact(pw);
+        pw.println(String.format(Locale.US, "cache.segments.hit_rate=%.4f", TTSUtils.getSegmentationCache().getHitRate()));
+        ClipStore store = clipStore;
+        if (store != null) pw.println(String.format(Locale.US, "cache.clips.hit_rate=%.4f", store.getCache().getHitRate()));
+        pw.println("wakelock.cpu.held_ms=" + cpuWakeHold.getHeldMs());
+        pw.println("wakelock.cpu.acquires=" + cpuWakeHold.getAcquires());
+        pw.println("wakelock.screen.held_ms=" + screenWakeHold.getHeldMs());
+        pw.println("wakelock.screen.acquires=" + screenWakeHold.getAcquires());
+    }
+
+    private static final class HoldTimer {
+        private long since = -1;
+        private long until;
+        private long heldMs;
+        private int acquires;
+
+        synchronized void acquired(long timeoutMs) {
+            long now = SystemClock.elapsedRealtime();
+            if (since >= 0 && now >= until) {
+                heldMs += until - since;
+                since = -1;
+            }
+            if (since < 0) {
+                since = now;
+                acquires++;
+            }
+            until = now + timeoutMs;
+        }
+
+        synchronized void released() {
+            if (since < 0) return;
+            heldMs += Math.min(SystemClock.elapsedRealtime(), until) - since;
+            since = -1;
+        }
+
+        synchronized long getHeldMs() {
+            if (since < 0) return heldMs;
+            return heldMs + Math.min(SystemClock.elapsedRealtime(), until) - since;
+        }
+
+        synchronized int getAcquires() {
+            return acquires;
+        }
+
+        synchronized String getSummary() {
+            return "held=" + getHeldMs() / 1000 + "s acquires=" + acquires + (since >= 0 ? " (held now)" : "");
+        }
+    }
+
     @Override
     protected int onIsLanguageAvailable(String l, String c, String v) {
         return TextToSpeech.LANG_AVAILABLE;
@@ -0,0 +1,449 @@
+package com.cherry.sme.tts;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchRenderer {
+
+    public static final int DEFAULT_WORKERS_PER_ENGINE = 2;
+    public static final int DEFAULT_OUTPUT_SAMPLE_RATE = 24000;
+    private static final int MAX_SEGMENT_CHARS = 1000;
+    private static final long ENGINE_INIT_TIMEOUT_MS = 10000;
+    private static final int COPY_FRAMES = 4096;
+    private static final long WORKER_JOIN_TIMEOUT_MS = 5000;
+
+    public interface Listener {
+        void onProgress(Progress progress);
+
+        void onComplete(Metrics metrics);
+
+        void onError(String message, Throwable t);
+    }
+
+    public static class Progress {
+        public final int segmentsDone;
+        public final int segmentsWritten;
+        public final int segmentsTotal;
+        public final long bytesWritten;
+
+        Progress(int segmentsDone, int segmentsWritten, int segmentsTotal, long bytesWritten) {
+            this.segmentsDone = segmentsDone;
+            this.segmentsWritten = segmentsWritten;
+            this.segmentsTotal = segmentsTotal;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+
+    public static class Metrics {
+        public int segments;
+        public int failedSegments;
+        public long characters;
+        public long wallTimeMs;
+        public long audioDurationMs;
+        public final Map<String, Long> engineBusyMs = new HashMap<>();
+        public final Map<String, Integer> engineSegments = new HashMap<>();
+
+        public double realtimeFactor() {
+            return wallTimeMs > 0 ? (double) audioDurationMs / wallTimeMs : 0;
+        }
+
+        public double charsPerSecond() {
+            return wallTimeMs > 0 ? characters * 1000.0 / wallTimeMs : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "segments=%d failed=%d chars=%d wall=%dms audio=%dms x%.2f realtime %.0f chars/s",
+                    segments, failedSegments, characters, wallTimeMs, audioDurationMs, realtimeFactor(), charsPerSecond()));
+            for (Map.Entry<String, Long> e : engineBusyMs.entrySet()) {
+                sb.append(" | ").append(e.getKey()).append(": ").append(engineSegments.get(e.getKey()))
+                        .append(" segs ").append(e.getValue()).append("ms busy");
+            }
+            return sb.toString();
+        }
+    }
+
+    private static class Segment {
+        final int index;
+        final String text;
+        final String lang;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile File file;
+        volatile boolean failed;
+
+        Segment(int index, String text, String lang) {
+            this.index = index;
+            this.text = text;
+            this.lang = lang;
+        }
+    }
+
+    private final Context context;
+    private final Map<String, String> enginePackages;
+    private final int workersPerEngine;
+    private final int outputSampleRate;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicInteger segmentsDone = new AtomicInteger(0);
+    private final List<Worker> workers = new ArrayList<>();
+
+    public BatchRenderer(Context context, Map<String, String> enginePackages, int workersPerEngine, int outputSampleRate) {
+        this.context = context.getApplicationContext();
+        this.enginePackages = enginePackages;
+        this.workersPerEngine = Math.max(1, workersPerEngine);
+        this.outputSampleRate = outputSampleRate;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public static List<TTSUtils.Chunk> segment(String text) {
+        List<TTSUtils.Chunk> chunks = TTSUtils.splitHelper(ZawgyiConverter.normalize(text));
+        chunks = ChunkCoalescer.coalesce(chunks, ChunkCoalescer.CostModel.defaults()).chunks;
+        List<TTSUtils.Chunk> segments = new ArrayList<>();
+        for (TTSUtils.Chunk chunk : chunks) {
+            String t = chunk.text;
+            int start = 0;
+            while (start < t.length()) {
+                int end = Math.min(start + MAX_SEGMENT_CHARS, t.length());
+                if (end < t.length()) {
+                    end = TTSUtils.findCutPoint(t, start, end, start + MAX_SEGMENT_CHARS / 2);
+                }
+                String piece = t.substring(start, end);
+                if (!piece.trim().isEmpty()) segments.add(new TTSUtils.Chunk(piece, chunk.lang));
+                start = end;
+            }
+        }
+        return segments;
+    }
+
+    public Metrics render(String text, File output, Listener listener) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("BatchRenderer is single-use, create a new instance per render");
+        }
+        long startTime = SystemClock.elapsedRealtime();
+        Metrics metrics = new Metrics();
+        File tempDir = new File(context.getCacheDir(), "batch_" + System.nanoTime());
+        try {
+            if (!tempDir.mkdirs() && !tempDir.isDirectory()) throw new IOException("Cannot create " + tempDir);
+            List<TTSUtils.Chunk> chunks = segment(text);
+            List<Segment> segments = new ArrayList<>(chunks.size());
+            Map<String, LinkedBlockingQueue<Segment>> queues = new HashMap<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                TTSUtils.Chunk c = chunks.get(i);
+                Segment seg = new Segment(i, c.text, c.lang);
+                segments.add(seg);
+                metrics.characters += c.text.length();
+                LinkedBlockingQueue<Segment> queue = queues.get(c.lang);
+                if (queue == null) {
+                    queue = new LinkedBlockingQueue<>();
+                    queues.put(c.lang, queue);
+                }
+                queue.add(seg);
+            }
+            metrics.segments = segments.size();
+            LogCollector.addLog("BATCH", "Rendering " + segments.size() + " segments in " + queues.size()
+                    + " languages with " + workersPerEngine + " workers per engine");
+
+            for (Map.Entry<String, LinkedBlockingQueue<Segment>> entry : queues.entrySet()) {
+                int count = Math.min(workersPerEngine, entry.getValue().size());
+                AtomicInteger live = new AtomicInteger(count);
+                for (int w = 0; w < count; w++) {
+                    Worker worker = new Worker(entry.getKey(), w, entry.getValue(), live, tempDir, listener, segments.size());
+                    workers.add(worker);
+                    worker.start();
+                }
+            }
+
+            stitch(segments, output, metrics, listener);
+            for (Worker worker : workers) {
+                String key = worker.lang;
+                Long busy = metrics.engineBusyMs.get(key);
+                metrics.engineBusyMs.put(key, (busy == null ? 0 : busy) + worker.busyMs.get());
+                Integer segs = metrics.engineSegments.get(key);
+                metrics.engineSegments.put(key, (segs == null ? 0 : segs) + worker.segmentsRendered.get());
+            }
+            metrics.wallTimeMs = SystemClock.elapsedRealtime() - startTime;
+            LogCollector.addLog("BATCH", "Render finished: " + metrics);
+            if (listener != null) listener.onComplete(metrics);
+        } catch (Exception e) {
+            LogCollector.addError("BATCH", "Render failed", e);
+            if (listener != null) listener.onError(e.getMessage(), e);
+        } finally {
+            cancelled.set(true);
+            for (Worker worker : workers) {
+                worker.shutdown();
+            }
+            boolean stopped = joinWorkers();
+            workers.clear();
+            if (stopped) {
+                File[] leftovers = tempDir.listFiles();
+                if (leftovers != null) {
+                    for (File f : leftovers) f.delete();
+                }
+                tempDir.delete();
+            } else {
+                LogCollector.addWarn("BATCH", "Workers still running, leaving " + tempDir.getName() + " in cache");
+            }
+        }
+        return metrics;
+    }
+
+    private boolean joinWorkers() {
+        long deadline = SystemClock.elapsedRealtime() + WORKER_JOIN_TIMEOUT_MS;
+        boolean stopped = true;
+        for (Worker worker : workers) {
+            long remaining = deadline - SystemClock.elapsedRealtime();
+            try {
+                if (remaining > 0) worker.join(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker.isAlive()) stopped = false;
+        }
+        return stopped;
+    }
+
+    private void stitch(List<Segment> segments, File output, Metrics metrics, Listener listener) throws IOException, InterruptedException {
+        RandomAccessFile out = new RandomAccessFile(output, "rw");
+        long dataBytes = 0;
+        try {
+            out.setLength(0);
+            WavIO.patchHeader(out, outputSampleRate, 1, 16, 0);
+            out.seek(WavIO.HEADER_SIZE);
+            byte[] inBuf = new byte[COPY_FRAMES * 4];
+            byte[] outBuf = new byte[COPY_FRAMES * 2 * 8];
+            for (int i = 0; i < segments.size(); i++) {
+                Segment seg = segments.get(i);
+                while (!seg.done.await(500, TimeUnit.MILLISECONDS)) {
+                    if (cancelled.get()) throw new IOException("Render cancelled");
+                }
+                if (!seg.failed && seg.file != null) {
+                    dataBytes += appendSegment(seg.file, out, inBuf, outBuf);
+                } else {
+                    metrics.failedSegments++;
+                }
+                if (seg.file != null) seg.file.delete();
+                if (listener != null) {
+                    listener.onProgress(new Progress(segmentsDone.get(), i + 1, segments.size(), dataBytes));
+                }
+            }
+            WavIO.patchHeader(out, outputSampleRate, 1, 16, dataBytes);
+        } finally {
+            out.close();
+        }
+        metrics.audioDurationMs = dataBytes / 2 * 1000L / outputSampleRate;
+    }
+
+    private long appendSegment(File file, RandomAccessFile out, byte[] inBuf, byte[] outBuf) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        long written = 0;
+        try {
+            WavIO.Format fmt = WavIO.readHeader(in);
+            if (fmt.bitsPerSample != 16 || fmt.channels < 1) {
+                throw new IOException("Unsupported segment format " + fmt.bitsPerSample + "bit x" + fmt.channels);
+            }
+            int frameBytes = fmt.bytesPerFrame();
+            long remaining = fmt.dataLength;
+            double step = (double) fmt.sampleRate / outputSampleRate;
+            double pos = 0;
+            int prev = 0;
+            int pending = 0;
+            while (remaining > 0) {
+                int want = (int) Math.min(inBuf.length - pending, remaining);
+                int n = in.read(inBuf, pending, want);
+                if (n <= 0) break;
+                remaining -= n;
+                int avail = pending + n;
+                int frames = avail / frameBytes;
+                int outLen = 0;
+                for (int f = 0; f < frames; f++) {
+                    int sum = 0;
+                    for (int ch = 0; ch < fmt.channels; ch++) {
+                        int o = f * frameBytes + ch * 2;
+                        sum += (short) ((inBuf[o] & 0xFF) | (inBuf[o + 1] << 8));
+                    }
+                    int sample = sum / fmt.channels;
+                    if (step == 1.0) {
+                        outBuf[outLen++] = (byte) sample;
+                        outBuf[outLen++] = (byte) (sample >> 8);
+                    } else {
+                        while (pos < 1.0) {
+                            int v = (int) (prev + (sample - prev) * pos);
+                            outBuf[outLen++] = (byte) v;
+                            outBuf[outLen++] = (byte) (v >> 8);
+                            pos += step;
+                            if (outLen >= outBuf.length - 2) {
+                                out.write(outBuf, 0, outLen);
+                                written += outLen;
+                                outLen = 0;
+                            }
+                        }
+                        pos -= 1.0;
+                    }
+                    prev = sample;
+                }
+                out.write(outBuf, 0, outLen);
+                written += outLen;
+                pending = avail - frames * frameBytes;
+                if (pending > 0) System.arraycopy(inBuf, frames * frameBytes, inBuf, 0, pending);
+            }
+        } finally {
+            in.close();
+        }
+        return written;
+    }
+
+    private void applyLanguage(TextToSpeech engine, String lang) {
+        if ("MYANMAR".equals(lang)) {
+            int res = engine.setLanguage(new Locale("mya"));
+            if (res < 0) res = engine.setLanguage(new Locale("mya", "MM"));
+            if (res < 0) engine.setLanguage(new Locale("my"));
+        } else if ("SHAN".equals(lang)) {
+            engine.setLanguage(new Locale("shn"));
+        } else {
+            engine.setLanguage(Locale.US);
+        }
+    }
+
+    private class Worker extends Thread {
+        final String lang;
+        final LinkedBlockingQueue<Segment> queue;
+        final AtomicInteger live;
+        final File tempDir;
+        final Listener listener;
+        final int total;
+        final AtomicLong busyMs = new AtomicLong(0);
+        final AtomicInteger segmentsRendered = new AtomicInteger(0);
+        private volatile RemoteTextToSpeech engine;
+        private volatile String currentId;
+        private volatile CountDownLatch currentLatch;
+        private volatile boolean currentFailed;
+
+        Worker(String lang, int index, LinkedBlockingQueue<Segment> queue, AtomicInteger live, File tempDir,
+               Listener listener, int total) {
+            super("TTS-Batch-" + lang + "-" + index);
+            this.lang = lang;
+            this.queue = queue;
+            this.live = live;
+            this.tempDir = tempDir;
+            this.listener = listener;
+            this.total = total;
+        }
+
+        @Override
+        public void run() {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+            CountDownLatch initLatch = new CountDownLatch(1);
+            final AtomicBoolean initOk = new AtomicBoolean(false);
+            try {
+                engine = new RemoteTextToSpeech(context, status -> {
+                    initOk.set(status == TextToSpeech.SUCCESS);
+                    initLatch.countDown();
+                }, enginePackages.get(lang));
+                engine.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+                    @Override
+                    public void onStart(String utteranceId) {}
+
+                    @Override
+                    public void onDone(String utteranceId) {
+                        if (utteranceId == null || !utteranceId.equals(currentId)) return;
+                        CountDownLatch l = currentLatch;
+                        if (l != null) l.countDown();
+                    }
+
+                    @Override
+                    public void onError(String utteranceId) {
+                        if (utteranceId == null || !utteranceId.equals(currentId)) return;
+                        currentFailed = true;
+                        CountDownLatch l = currentLatch;
+                        if (l != null) l.countDown();
+                    }
+                });
+                if (!initLatch.await(ENGINE_INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS) || !initOk.get()) {
+                    LogCollector.addError("BATCH", getName() + " engine init failed");
+                    return;
+                }
+                applyLanguage(engine, lang);
+                Segment seg;
+                while (!cancelled.get() && (seg = queue.poll()) != null) {
+                    renderSegment(seg);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LogCollector.addError("BATCH", getName() + " failed", e);
+            } finally {
+                // Siblings share the queue; only the last one out fails what is left.
+                if (live.decrementAndGet() == 0) drainAsFailed();
+            }
+        }
+
+        private void renderSegment(Segment seg) throws InterruptedException {
+            long start = SystemClock.elapsedRealtime();
+            File file = new File(tempDir, "seg_" + seg.index + ".wav");
+            String utteranceId = "batch_" + seg.index;
+            currentFailed = false;
+            currentLatch = new CountDownLatch(1);
+            currentId = utteranceId;
+            int result = TextToSpeech.ERROR;
+            try {
+                result = engine.synthesizeToFile(seg.text, new Bundle(), file, utteranceId);
+            } catch (Exception e) {
+                LogCollector.addError("BATCH", "synthesizeToFile threw for segment " + seg.index, e);
+            }
+            boolean ok = result != TextToSpeech.ERROR
+                    && currentLatch.await(Math.max(30000L, seg.text.length() * 300L), TimeUnit.MILLISECONDS)
+                    && !currentFailed && file.length() > WavIO.HEADER_SIZE;
+            seg.file = file;
+            seg.failed = !ok;
+            if (!ok) LogCollector.addWarn("BATCH", "Segment " + seg.index + " (" + lang + ") failed");
+            busyMs.addAndGet(SystemClock.elapsedRealtime() - start);
+            segmentsRendered.incrementAndGet();
+            seg.done.countDown();
+            int done = segmentsDone.incrementAndGet();
+            if (listener != null) listener.onProgress(new Progress(done, -1, total, -1));
+        }
+
+        private void drainAsFailed() {
+            Segment seg;
+            while ((seg = queue.poll()) != null) {
+                seg.failed = true;
+                seg.done.countDown();
+                segmentsDone.incrementAndGet();
+            }
+        }
+
+        void shutdown() {
+            RemoteTextToSpeech e = engine;
+            if (e != null) {
+                try { e.shutdown(); } catch (Exception ex) {}
+            }
+            CountDownLatch l = currentLatch;
+            if (l != null) l.countDown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.cherry.sme.tts;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ChunkCoalescer {
+
+    public static final String PREF_ENABLED = "pref_coalesce_enabled";
+    public static final String PREF_SWITCH_COST = "pref_coalesce_switch_cost";
+    public static final String PREF_MISPRONOUNCE_COST = "pref_coalesce_mispronounce_cost";
+    public static final String PREF_MAX_ABSORB = "pref_coalesce_max_absorb";
+
+    private static final AtomicLong totalRequests = new AtomicLong(0);
+    private static final AtomicLong totalSwitchesSaved = new AtomicLong(0);
+
+    public static class CostModel {
+        public final boolean enabled;
+        public final int switchCost;
+        public final int mispronounceCost;
+        public final int maxAbsorbLength;
+
+        public CostModel(boolean enabled, int switchCost, int mispronounceCost, int maxAbsorbLength) {
+            this.enabled = enabled;
+            this.switchCost = switchCost;
+            this.mispronounceCost = mispronounceCost;
+            this.maxAbsorbLength = maxAbsorbLength;
+        }
+
+        public static CostModel defaults() {
+            return new CostModel(true, 12, 4, 4);
+        }
+
+        public static CostModel fromPreferences(SharedPreferences prefs) {
+            CostModel def = defaults();
+            if (prefs == null) return def;
+            try {
+                return new CostModel(
+                        prefs.getBoolean(PREF_ENABLED, def.enabled),
+                        prefs.getInt(PREF_SWITCH_COST, def.switchCost),
+                        prefs.getInt(PREF_MISPRONOUNCE_COST, def.mispronounceCost),
+                        prefs.getInt(PREF_MAX_ABSORB, def.maxAbsorbLength));
+            } catch (Exception e) {
+                return def;
+            }
+        }
+
+        public int key() {
+            if (!enabled) return -1;
+            return (switchCost * 31 + mispronounceCost) * 31 + maxAbsorbLength;
+        }
+
+        boolean canRead(String hostLang, String guestLang) {
+            if (hostLang.equals(guestLang)) return true;
+            return "ENGLISH".equals(guestLang) && ("SHAN".equals(hostLang) || "MYANMAR".equals(hostLang));
+        }
+    }
+
+    public static class Result {
+        public final List<TTSUtils.Chunk> chunks;
+        public final int switchesSaved;
+
+        Result(List<TTSUtils.Chunk> chunks, int switchesSaved) {
+            this.chunks = chunks;
+            this.switchesSaved = switchesSaved;
+        }
+    }
+
+    public static Result coalesce(List<TTSUtils.Chunk> input, CostModel model) {
+        if (input == null || input.size() < 2 || model == null || !model.enabled) {
+            return new Result(input, 0);
+        }
+        List<TTSUtils.Chunk> work = new ArrayList<>(input.size());
+        for (TTSUtils.Chunk c : input) {
+            work.add(new TTSUtils.Chunk(c.text, c.lang));
+        }
+
+        for (int i = 0; i < work.size(); i++) {
+            TTSUtils.Chunk chunk = work.get(i);
+            String prevLang = i > 0 ? work.get(i - 1).lang : null;
+            String nextLang = i + 1 < work.size() ? work.get(i + 1).lang : null;
+            int letters = countLetters(chunk.text);
+
+            if (letters == 0) {
+                chunk.lang = prevLang != null ? prevLang : (nextLang != null ? nextLang : chunk.lang);
+                continue;
+            }
+            if (letters > model.maxAbsorbLength) continue;
+
+            int penalty = letters * model.mispronounceCost;
+            if (prevLang != null && prevLang.equals(nextLang) && !prevLang.equals(chunk.lang)) {
+                if (model.canRead(prevLang, chunk.lang) && penalty < model.switchCost * 2) {
+                    chunk.lang = prevLang;
+                }
+            } else if (prevLang == null && nextLang != null && !nextLang.equals(chunk.lang)) {
+                if (model.canRead(nextLang, chunk.lang) && penalty < model.switchCost) {
+                    chunk.lang = nextLang;
+                }
+            } else if (nextLang == null && prevLang != null && !prevLang.equals(chunk.lang)) {
+                if (model.canRead(prevLang, chunk.lang) && penalty < model.switchCost) {
+                    chunk.lang = prevLang;
+                }
+            }
+        }
+
+        List<TTSUtils.Chunk> merged = new ArrayList<>(work.size());
+        StringBuilder buffer = new StringBuilder();
+        String currentLang = null;
+        for (TTSUtils.Chunk chunk : work) {
+            if (currentLang != null && !currentLang.equals(chunk.lang)) {
+                merged.add(new TTSUtils.Chunk(buffer.toString(), currentLang));
+                buffer.setLength(0);
+            }
+            currentLang = chunk.lang;
+            buffer.append(chunk.text);
+        }
+        if (buffer.length() > 0) {
+            merged.add(new TTSUtils.Chunk(buffer.toString(), currentLang));
+        }
+
+        int saved = input.size() - merged.size();
+        totalRequests.incrementAndGet();
+        totalSwitchesSaved.addAndGet(saved);
+        return new Result(merged, saved);
+    }
+
+    private static int countLetters(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '\u1040' && c <= '\u104F') || (c >= '\u1090' && c <= '\u1099')) continue;
+            if (Character.isLetter(c) || (c >= '\u1000' && c <= '\u109F') || (c >= '\uAA60' && c <= '\uAA7F')) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    public static long getTotalSwitchesSaved() {
+        return totalSwitchesSaved.get();
+    }
+}
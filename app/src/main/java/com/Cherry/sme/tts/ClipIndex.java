@@ -0,0 +1,149 @@
+package com.cherry.sme.tts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+public class ClipIndex {
+
+    private static final int MAGIC = 0x43504958;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 20;
+    private static final int FINGERPRINT_SEED = 0x5BD1E995;
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final int gBase;
+    private final int offsetBase;
+    private final int lengthBase;
+    private final int crcBase;
+    private final int fingerprintBase;
+    private final int nameOffsetBase;
+    private final int nameBase;
+
+    private ClipIndex(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.capacity() < HEADER_SIZE + 8 || buf.getInt(0) != MAGIC) throw new IOException("Not a clip index");
+        if (buf.getInt(4) != VERSION) throw new IOException("Unsupported clip index version " + buf.getInt(4));
+        count = buf.getInt(8);
+        int blobSize = buf.getInt(16);
+        gBase = HEADER_SIZE;
+        offsetBase = gBase + count * 4;
+        lengthBase = offsetBase + count * 4;
+        crcBase = lengthBase + count * 4;
+        fingerprintBase = crcBase + count * 4;
+        nameOffsetBase = fingerprintBase + count * 4;
+        nameBase = nameOffsetBase + (count + 1) * 4;
+        if (count < 0 || (long) nameBase + blobSize + 4 != buf.capacity()) throw new IOException("Truncated clip index");
+    }
+
+    public static ClipIndex open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new ClipIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    public boolean verify() {
+        CRC32 crc = new CRC32();
+        int end = buf.capacity() - 4;
+        byte[] chunk = new byte[8192];
+        for (int pos = 0; pos < end; pos += chunk.length) {
+            int n = Math.min(chunk.length, end - pos);
+            for (int i = 0; i < n; i++) chunk[i] = buf.get(pos + i);
+            crc.update(chunk, 0, n);
+        }
+        return (int) crc.getValue() == buf.getInt(end);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int find(CharSequence name) {
+        if (count == 0 || name == null) return -1;
+        int d = buf.getInt(gBase + slot(name, 0) * 4);
+        int slot = d < 0 ? -d - 1 : slot(name, d);
+        if (buf.getInt(fingerprintBase + slot * 4) != hash(name, FINGERPRINT_SEED)) return -1;
+        return nameEquals(slot, name) ? slot : -1;
+    }
+
+    public long getOffset(int slot) {
+        return buf.getInt(offsetBase + slot * 4) & 0xFFFFFFFFL;
+    }
+
+    public int getLength(int slot) {
+        return buf.getInt(lengthBase + slot * 4);
+    }
+
+    public int getCrc(int slot) {
+        return buf.getInt(crcBase + slot * 4);
+    }
+
+    private int slot(CharSequence name, int seed) {
+        return (hash(name, seed) & 0x7FFFFFFF) % count;
+    }
+
+    static int hash(CharSequence s, int seed) {
+        int h = seed == 0 ? 0x811C9DC5 : seed;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            int c = s.charAt(i);
+            if (c < 0x80) {
+                h = (h ^ c) * 0x01000193;
+            } else if (c < 0x800) {
+                h = (h ^ (0xC0 | (c >> 6))) * 0x01000193;
+                h = (h ^ (0x80 | (c & 0x3F))) * 0x01000193;
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint((char) c, s.charAt(++i));
+                h = (h ^ (0xF0 | (cp >> 18))) * 0x01000193;
+                h = (h ^ (0x80 | ((cp >> 12) & 0x3F))) * 0x01000193;
+                h = (h ^ (0x80 | ((cp >> 6) & 0x3F))) * 0x01000193;
+                h = (h ^ (0x80 | (cp & 0x3F))) * 0x01000193;
+            } else {
+                h = (h ^ (0xE0 | (c >> 12))) * 0x01000193;
+                h = (h ^ (0x80 | ((c >> 6) & 0x3F))) * 0x01000193;
+                h = (h ^ (0x80 | (c & 0x3F))) * 0x01000193;
+            }
+        }
+        return h;
+    }
+
+    private boolean nameEquals(int slot, CharSequence name) {
+        int pos = nameBase + buf.getInt(nameOffsetBase + slot * 4);
+        int end = nameBase + buf.getInt(nameOffsetBase + slot * 4 + 4);
+        int len = name.length();
+        for (int i = 0; i < len; i++) {
+            if (pos >= end) return false;
+            int b = buf.get(pos++) & 0xFF;
+            int cp;
+            if (b < 0x80) {
+                cp = b;
+            } else if (b < 0xE0) {
+                if (pos >= end) return false;
+                cp = ((b & 0x1F) << 6) | (buf.get(pos++) & 0x3F);
+            } else if (b < 0xF0) {
+                if (pos + 1 >= end) return false;
+                cp = ((b & 0x0F) << 12) | ((buf.get(pos++) & 0x3F) << 6) | (buf.get(pos++) & 0x3F);
+            } else {
+                if (pos + 2 >= end) return false;
+                cp = ((b & 0x07) << 18) | ((buf.get(pos++) & 0x3F) << 12) | ((buf.get(pos++) & 0x3F) << 6) | (buf.get(pos++) & 0x3F);
+            }
+            char c = name.charAt(i);
+            if (cp >= 0x10000) {
+                if (c != Character.highSurrogate(cp) || i + 1 >= len || name.charAt(++i) != Character.lowSurrogate(cp)) return false;
+            } else if (c != cp) {
+                return false;
+            }
+        }
+        return pos == end;
+    }
+}
@@ -0,0 +1,314 @@
+package com.cherry.sme.tts;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClipPcmCache {
+
+    public static final String PREF_BUDGET_MB = "pref_clip_cache_mb";
+    private static final long MIN_BUDGET = 4L * 1024 * 1024;
+    private static final long MAX_BUDGET = 64L * 1024 * 1024;
+    private static final int MIN_CLASS_SHIFT = 10;
+    private static final int MAX_CLASS_SHIFT = 22;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    public static class Clip {
+        public final String name;
+        public final short[] data;
+        public final int length;
+        public final int sampleRate;
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private ClipPcmCache owner;
+        Clip prev;
+        Clip next;
+        int queue;
+
+        Clip(String name, short[] data, int length, int sampleRate) {
+            this.name = name;
+            this.data = data;
+            this.length = length;
+            this.sampleRate = sampleRate;
+        }
+
+        long bytes() {
+            return data.length * 2L;
+        }
+
+        public long durationMs() {
+            return sampleRate > 0 ? length * 1000L / sampleRate : 0;
+        }
+
+        public void release() {
+            if (refs.decrementAndGet() == 0 && owner != null) owner.recycle(data);
+        }
+
+        Clip retain() {
+            refs.incrementAndGet();
+            return this;
+        }
+    }
+
+    private final long budget;
+    private final long windowBudget;
+    private final long protectedBudget;
+    private final long poolBudget;
+    private final HashMap<String, Clip> map = new HashMap<>();
+    private final Clip[] heads = new Clip[3];
+    private final Clip[] tails = new Clip[3];
+    private final long[] queueBytes = new long[3];
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<short[]>[] pool = new ArrayDeque[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+    private long pooledBytes;
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long poolHits;
+    private long poolMisses;
+
+    public ClipPcmCache(long budgetBytes) {
+        this.budget = budgetBytes;
+        this.windowBudget = Math.max(64 * 1024, budgetBytes * WINDOW_PERCENT / 100);
+        this.protectedBudget = (budgetBytes - windowBudget) * PROTECTED_PERCENT / 100;
+        this.poolBudget = budgetBytes / 8;
+        for (int i = 0; i < pool.length; i++) pool[i] = new ArrayDeque<>();
+        this.sketch = new FrequencySketch((int) Math.max(256, budgetBytes / (48 * 1024)));
+    }
+
+    public static long defaultBudget(Context context, SharedPreferences prefs) {
+        try {
+            int mb = Integer.parseInt(prefs.getString(PREF_BUDGET_MB, "0"));
+            if (mb > 0) return mb * 1024L * 1024L;
+        } catch (Exception e) {}
+        int memoryClass = 64;
+        try {
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            boolean largeHeap = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_LARGE_HEAP) != 0;
+            memoryClass = largeHeap ? am.getLargeMemoryClass() : am.getMemoryClass();
+            if (am.isLowRamDevice()) memoryClass /= 2;
+        } catch (Exception e) {}
+        long budget = memoryClass * 1024L * 1024L / 8;
+        return Math.max(MIN_BUDGET, Math.min(MAX_BUDGET, budget));
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized Clip get(String name) {
+        sketch.increment(name.hashCode());
+        Clip clip = map.get(name);
+        if (clip == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (clip.queue == PROBATION) {
+            unlink(clip);
+            link(clip, PROTECTED);
+            while (queueBytes[PROTECTED] > protectedBudget && tails[PROTECTED] != clip) {
+                Clip demoted = tails[PROTECTED];
+                unlink(demoted);
+                link(demoted, PROBATION);
+            }
+        } else {
+            unlink(clip);
+            link(clip, clip.queue);
+        }
+        return clip.retain();
+    }
+
+    public synchronized short[] acquire(int minLength) {
+        int cls = sizeClass(minLength);
+        if (cls < 0) return new short[minLength];
+        short[] buf = pool[cls].pollFirst();
+        if (buf != null) {
+            pooledBytes -= buf.length * 2L;
+            poolHits++;
+            return buf;
+        }
+        poolMisses++;
+        return new short[1 << (cls + MIN_CLASS_SHIFT)];
+    }
+
+    public synchronized void recycle(short[] buf) {
+        int cls = sizeClass(buf.length);
+        if (cls < 0 || buf.length != 1 << (cls + MIN_CLASS_SHIFT)) return;
+        if (pooledBytes + buf.length * 2L > poolBudget) return;
+        pool[cls].addFirst(buf);
+        pooledBytes += buf.length * 2L;
+    }
+
+    private static int sizeClass(int length) {
+        int shift = MIN_CLASS_SHIFT;
+        while ((1 << shift) < length) {
+            if (++shift > MAX_CLASS_SHIFT) return -1;
+        }
+        return shift - MIN_CLASS_SHIFT;
+    }
+
+    public synchronized Clip put(String name, short[] data, int length, int sampleRate) {
+        Clip existing = map.get(name);
+        if (existing != null) {
+            recycle(data);
+            return existing.retain();
+        }
+        Clip clip = new Clip(name, data, length, sampleRate);
+        clip.owner = this;
+        if (clip.bytes() > budget - windowBudget) {
+            return clip;
+        }
+        map.put(name, clip);
+        clip.retain();
+        link(clip, WINDOW);
+        while (queueBytes[WINDOW] > windowBudget && tails[WINDOW] != clip) {
+            Clip candidate = tails[WINDOW];
+            unlink(candidate);
+            admit(candidate);
+        }
+        return clip;
+    }
+
+    private void admit(Clip candidate) {
+        link(candidate, PROBATION);
+        long limit = budget - windowBudget;
+        while (queueBytes[PROBATION] + queueBytes[PROTECTED] > limit) {
+            Clip victim = tails[PROBATION];
+            if (victim == candidate) victim = victim.prev;
+            if (victim == null) {
+                victim = tails[PROTECTED];
+                if (victim == null) break;
+            }
+            if (victim != candidate && candidate.queue == PROBATION
+                    && sketch.frequency(candidate.name.hashCode()) <= sketch.frequency(victim.name.hashCode())) {
+                rejections++;
+                evict(candidate);
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Clip clip) {
+        unlink(clip);
+        map.remove(clip.name);
+        evictions++;
+        clip.release();
+    }
+
+    public synchronized void trimTo(long bytes) {
+        for (int q : new int[]{WINDOW, PROBATION, PROTECTED}) {
+            while (totalBytes() > bytes && tails[q] != null) evict(tails[q]);
+        }
+        if (bytes == 0) {
+            for (ArrayDeque<short[]> d : pool) d.clear();
+            pooledBytes = 0;
+        }
+    }
+
+    public synchronized void clear() {
+        trimTo(0);
+    }
+
+    private long totalBytes() {
+        return queueBytes[WINDOW] + queueBytes[PROBATION] + queueBytes[PROTECTED];
+    }
+
+    private void link(Clip clip, int queue) {
+        clip.queue = queue;
+        clip.prev = null;
+        clip.next = heads[queue];
+        if (heads[queue] != null) heads[queue].prev = clip;
+        heads[queue] = clip;
+        if (tails[queue] == null) tails[queue] = clip;
+        queueBytes[queue] += clip.bytes();
+    }
+
+    private void unlink(Clip clip) {
+        int queue = clip.queue;
+        if (clip.prev != null) clip.prev.next = clip.next;
+        else heads[queue] = clip.next;
+        if (clip.next != null) clip.next.prev = clip.prev;
+        else tails[queue] = clip.prev;
+        clip.prev = null;
+        clip.next = null;
+        queueBytes[queue] -= clip.bytes();
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    public synchronized String getSummary() {
+        long total = hits + misses;
+        return String.format(Locale.US,
+                "clips=%d used=%dKB/%dKB (window %dKB, probation %dKB, protected %dKB) hit=%.1f%% (%d/%d) evictions=%d rejected=%d pool=%dKB (hits %d, misses %d)",
+                map.size(), totalBytes() / 1024, budget / 1024, queueBytes[WINDOW] / 1024,
+                queueBytes[PROBATION] / 1024, queueBytes[PROTECTED] / 1024,
+                total > 0 ? hits * 100.0 / total : 0.0, hits, total, evictions, rejections,
+                pooledBytes / 1024, poolHits, poolMisses);
+    }
+
+    static class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(int capacity) {
+            int n = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            table = new long[n];
+            mask = n - 1;
+            sampleSize = 10 * n;
+        }
+
+        private static int spread(int h, int i) {
+            h = (h + i * 0x9E3779B9) * 0x85EBCA6B;
+            return h ^ (h >>> 15);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int h = spread(hash, i);
+                int index = h & mask;
+                int offset = ((h >>> 28) & 3) * 4 + i;
+                long shift = offset * 4L;
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize) {
+                for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+                size /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                int h = spread(hash, i);
+                int offset = ((h >>> 28) & 3) * 4 + i;
+                min = Math.min(min, (int) ((table[h & mask] >>> (offset * 4L)) & 0xF));
+            }
+            return min;
+        }
+    }
+}
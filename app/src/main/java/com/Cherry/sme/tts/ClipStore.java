@@ -0,0 +1,171 @@
+package com.cherry.sme.tts;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+public class ClipStore {
+
+    public static final String PACK_FILE = "audio.din";
+    public static final String INDEX_FILE = "index.bin";
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+    private static final int MAX_IDLE_DEQUEUES = 200;
+    private static final int MIN_SDK_OGG_OPUS = 29;
+
+    private final ClipIndex index;
+    private final FileInputStream pack;
+    private final ClipPcmCache cache;
+
+    private ClipStore(ClipIndex index, FileInputStream pack, ClipPcmCache cache) {
+        this.index = index;
+        this.pack = pack;
+        this.cache = cache;
+    }
+
+    public static ClipStore open(File dir, ClipPcmCache cache) throws IOException {
+        File indexFile = new File(dir, INDEX_FILE);
+        File packFile = new File(dir, PACK_FILE);
+        if (!indexFile.isFile() || !packFile.isFile()) return null;
+        if (Build.VERSION.SDK_INT < MIN_SDK_OGG_OPUS) {
+            LogCollector.addWarn("CLIPS", "Clip pack needs Ogg-Opus demuxing (API " + MIN_SDK_OGG_OPUS + "+), ignored");
+            return null;
+        }
+        return new ClipStore(ClipIndex.open(indexFile), new FileInputStream(packFile), cache);
+    }
+
+    public ClipPcmCache getCache() {
+        return cache;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public ClipPcmCache.Clip getClip(String name) throws IOException {
+        ClipPcmCache.Clip clip = cache.get(name);
+        if (clip != null) return clip;
+        int slot = index.find(name);
+        if (slot < 0) return null;
+        long offset = index.getOffset(slot);
+        int length = index.getLength(slot);
+        if (!verify(offset, length, index.getCrc(slot))) throw new IOException("Checksum mismatch for clip " + name);
+        return decode(name, offset, length);
+    }
+
+    private boolean verify(long offset, int length, int expected) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        synchronized (pack) {
+            FileChannel channel = pack.getChannel();
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, offset + bytes.position()) < 0) return false;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, length);
+        return (int) crc.getValue() == expected;
+    }
+
+    private ClipPcmCache.Clip decode(String name, long offset, int length) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        short[] pcm = null;
+        try {
+            synchronized (pack) {
+                extractor.setDataSource(pack.getFD(), offset, length);
+            }
+            if (extractor.getTrackCount() < 1) throw new IOException("No audio track in clip " + name);
+            MediaFormat format = extractor.getTrackFormat(0);
+            extractor.selectTrack(0);
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            pcm = cache.acquire(sampleRate);
+            int written = 0;
+            boolean inputDone = false;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            int idle = 0;
+            while (true) {
+                if (++idle > MAX_IDLE_DEQUEUES) throw new IOException("Decoder stalled on clip " + name);
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                    if (in >= 0) {
+                        idle = 0;
+                        ByteBuffer buf = codec.getInputBuffer(in);
+                        int size = extractor.readSampleData(buf, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int out = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+                if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (out >= 0) {
+                    idle = 0;
+                    ByteBuffer buf = codec.getOutputBuffer(out);
+                    if (buf != null && info.size > 0) {
+                        buf.position(info.offset);
+                        buf.limit(info.offset + info.size);
+                        ShortBuffer samples = buf.order(ByteOrder.nativeOrder()).asShortBuffer();
+                        int frames = samples.remaining() / Math.max(1, channels);
+                        if (written + frames > pcm.length) {
+                            short[] bigger = cache.acquire(written + frames);
+                            System.arraycopy(pcm, 0, bigger, 0, written);
+                            cache.recycle(pcm);
+                            pcm = bigger;
+                        }
+                        if (channels <= 1) {
+                            samples.get(pcm, written, frames);
+                        } else {
+                            for (int f = 0; f < frames; f++) {
+                                int sum = 0;
+                                for (int c = 0; c < channels; c++) sum += samples.get();
+                                pcm[written + f] = (short) (sum / channels);
+                            }
+                        }
+                        written += frames;
+                    }
+                    codec.releaseOutputBuffer(out, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+            ClipPcmCache.Clip clip = cache.put(name, pcm, written, sampleRate);
+            pcm = null;
+            return clip;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to decode clip " + name, e);
+        } finally {
+            if (pcm != null) cache.recycle(pcm);
+            if (codec != null) {
+                try { codec.stop(); } catch (Exception e) {}
+                try { codec.release(); } catch (Exception e) {}
+            }
+            extractor.release();
+        }
+    }
+
+    public void close() {
+        cache.clear();
+        try { pack.close(); } catch (IOException e) {}
+    }
+}
@@ -0,0 +1,32 @@
+package com.cherry.sme.tts;
+
+import android.os.Bundle;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Set;
+
+public interface DelegateEngine {
+
+    int speak(CharSequence text, int queueMode, Bundle params, String utteranceId);
+
+    int synthesizeToFile(CharSequence text, Bundle params, File file, String utteranceId);
+
+    int stop();
+
+    void shutdown();
+
+    int setLanguage(Locale locale);
+
+    Set<Voice> getVoices();
+
+    int setVoice(Voice voice);
+
+    int setSpeechRate(float speechRate);
+
+    int setPitch(float pitch);
+
+    int setOnUtteranceProgressListener(UtteranceProgressListener listener);
+}
@@ -0,0 +1,373 @@
+package com.cherry.sme.tts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class EngineBenchmark {
+
+    public static final String[] LANGS = {"SHAN", "MYANMAR", "ENGLISH"};
+    public static final String[] PREF_KEYS = {"pref_engine_shan", "pref_engine_myanmar", "pref_engine_english"};
+    private static final String PREF_RESULTS = "engine_bench_";
+    private static final String PREF_TIME = "engine_bench_time";
+
+    private static final long INIT_TIMEOUT_MS = 10000;
+    private static final long UTTERANCE_TIMEOUT_MS = 15000;
+    private static final int MAX_FAILURE_PERCENT = 20;
+    private static final int TYPICAL_CHARS = 60;
+
+    private static final String[][] SAMPLES = {
+            {
+                    "\u1019\u1082\u103A\u1087\u101E\u102F\u1004\u103A\u1076\u1083\u1088",
+                    "\u1019\u107C\u103A\u1038 \u1010\u1084\u1089",
+                    "\u1019\u1082\u103A\u1087\u101E\u102F\u1004\u103A\u1076\u1083\u1088\u104A \u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B\u104A"
+            },
+            {
+                    "\u1019\u103C\u1014\u103A\u1019\u102C",
+                    "\u1000\u103B\u1031\u1038\u1007\u1030\u1038\u1015\u103C\u102F\u1015\u103C\u102E\u1038",
+                    "\u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B\u104A Cherry SME TTS \u1021\u1006\u1004\u103A\u101E\u1004\u103A\u1037 \u1016\u103C\u1005\u103A\u1014\u1031\u1015\u102B\u1015\u103C\u102E\u104B"
+            },
+            {
+                    "Settings",
+                    "Double tap to activate",
+                    "Cherry SME TTS is ready. This is a sample text."
+            }
+    };
+
+    public static class Result {
+        public final String packageName;
+        public long bindMs = -1;
+        public long firstAudioMs = -1;
+        public float charsPerSecond;
+        public int failures;
+        public int runs;
+
+        Result(String packageName) {
+            this.packageName = packageName;
+        }
+
+        public boolean isReliable() {
+            return runs > 0 && failures * 100 <= runs * MAX_FAILURE_PERCENT && charsPerSecond > 0;
+        }
+
+        public float score() {
+            return firstAudioMs + 1000f * TYPICAL_CHARS / charsPerSecond;
+        }
+
+        public String describe() {
+            return String.format(Locale.US, "%s bind=%dms firstAudio=%dms %.1f chars/s failed=%d/%d",
+                    packageName, bindMs, firstAudioMs, charsPerSecond, failures, runs);
+        }
+    }
+
+    public interface Listener {
+        void onProgress(String status);
+
+        void onFinished(Map<String, String> recommended);
+    }
+
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    public static boolean isRunning() {
+        return running.get();
+    }
+
+    public static String resultKey(String lang) {
+        return PREF_RESULTS + lang;
+    }
+
+    public static boolean start(Context context, boolean autoSelect, Listener listener) {
+        if (!running.compareAndSet(false, true)) return false;
+        final Context app = context.getApplicationContext();
+        Thread t = new Thread(() -> {
+            Map<String, String> recommended = Collections.emptyMap();
+            try {
+                recommended = new EngineBenchmark(app).run(autoSelect, listener);
+            } catch (Exception e) {
+                LogCollector.addError("BENCH", "Engine benchmark failed", e);
+            } finally {
+                running.set(false);
+                if (listener != null) listener.onFinished(recommended);
+            }
+        }, "TTS-EngineBench");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final File scratch;
+
+    private EngineBenchmark(Context context) {
+        this.context = context;
+        this.prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        this.scratch = new File(context.getCacheDir(), "engine_bench.wav");
+    }
+
+    private Map<String, String> run(boolean autoSelect, Listener listener) {
+        List<EngineRegistry.Engine> engines = EngineRegistry.get(context).getEngines();
+        List<List<Result>> byLang = new ArrayList<>();
+        for (int i = 0; i < LANGS.length; i++) byLang.add(new ArrayList<>());
+        long start = SystemClock.elapsedRealtime();
+        LogCollector.addLog("BENCH", "Engine benchmark: " + engines.size() + " engines x " + LANGS.length + " languages");
+        for (int e = 0; e < engines.size(); e++) {
+            EngineRegistry.Engine engine = engines.get(e);
+            if (listener != null) listener.onProgress("Testing " + engine.label + " (" + (e + 1) + "/" + engines.size() + ")");
+            benchmarkEngine(engine.packageName, byLang);
+        }
+        scratch.delete();
+
+        Map<String, String> recommended = new LinkedHashMap<>();
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; i < LANGS.length; i++) {
+            List<Result> results = byLang.get(i);
+            editor.putString(resultKey(LANGS[i]), serialize(results));
+            Result best = best(results, engines);
+            for (Result r : results) {
+                LogCollector.addLog("BENCH", LANGS[i] + " " + r.describe() + (r == best ? " <- fastest" : ""));
+            }
+            if (best == null) {
+                LogCollector.addWarn("BENCH", LANGS[i] + ": no reliable engine found");
+                continue;
+            }
+            recommended.put(LANGS[i], best.packageName);
+            if (autoSelect || !prefs.contains(PREF_KEYS[i])) {
+                editor.putString(PREF_KEYS[i], best.packageName);
+                LogCollector.addLog("BENCH", LANGS[i] + " engine set to " + best.packageName);
+            }
+        }
+        editor.putLong(PREF_TIME, System.currentTimeMillis()).apply();
+        LogCollector.addLog("BENCH", "Engine benchmark finished in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        return recommended;
+    }
+
+    private void benchmarkEngine(String pkg, List<List<Result>> byLang) {
+        CountDownLatch initDone = new CountDownLatch(1);
+        int[] initStatus = {TextToSpeech.ERROR};
+        long bindStart = SystemClock.elapsedRealtime();
+        RemoteTextToSpeech tts;
+        try {
+            tts = new RemoteTextToSpeech(context, status -> {
+                initStatus[0] = status;
+                initDone.countDown();
+            }, pkg);
+        } catch (Exception e) {
+            LogCollector.addError("BENCH", pkg + " could not be created", e);
+            return;
+        }
+        try {
+            boolean initialized = await(initDone, INIT_TIMEOUT_MS);
+            long bindMs = SystemClock.elapsedRealtime() - bindStart;
+            if (!initialized || initStatus[0] != TextToSpeech.SUCCESS) {
+                LogCollector.addWarn("BENCH", pkg + " init failed (" + (initialized ? "status " + initStatus[0] : "timeout") + ")");
+                for (int i = 0; i < LANGS.length; i++) {
+                    Result r = new Result(pkg);
+                    r.bindMs = bindMs;
+                    r.runs = SAMPLES[i].length;
+                    r.failures = r.runs;
+                    byLang.get(i).add(r);
+                }
+                return;
+            }
+            Probe probe = new Probe();
+            tts.setOnUtteranceProgressListener(probe);
+            for (int i = 0; i < LANGS.length; i++) {
+                if (!selectLanguage(tts, LANGS[i])) continue;
+                Result r = new Result(pkg);
+                r.bindMs = bindMs;
+                measure(tts, probe, SAMPLES[i][0]);
+                long firstAudioTotal = 0;
+                long synthMs = 0;
+                long chars = 0;
+                for (String text : SAMPLES[i]) {
+                    r.runs++;
+                    long[] timing = measure(tts, probe, text);
+                    if (timing == null) {
+                        r.failures++;
+                        continue;
+                    }
+                    firstAudioTotal += timing[0];
+                    synthMs += timing[1];
+                    chars += text.length();
+                }
+                int ok = r.runs - r.failures;
+                if (ok > 0) {
+                    r.firstAudioMs = firstAudioTotal / ok;
+                    r.charsPerSecond = chars * 1000f / Math.max(1, synthMs);
+                }
+                byLang.get(i).add(r);
+            }
+        } finally {
+            try { tts.shutdown(); } catch (Exception e) {}
+        }
+    }
+
+    private static boolean selectLanguage(TextToSpeech tts, String lang) {
+        for (Locale locale : localesFor(lang)) {
+            try {
+                if (tts.isLanguageAvailable(locale) >= TextToSpeech.LANG_AVAILABLE) {
+                    tts.setLanguage(locale);
+                    return true;
+                }
+            } catch (Exception e) {}
+        }
+        return false;
+    }
+
+    static Locale[] localesFor(String lang) {
+        if ("SHAN".equals(lang)) return new Locale[]{new Locale("shn")};
+        if ("MYANMAR".equals(lang)) return new Locale[]{new Locale("mya"), new Locale("mya", "MM"), new Locale("my")};
+        return new Locale[]{Locale.US};
+    }
+
+    private long[] measure(TextToSpeech tts, Probe probe, String text) {
+        String id = "bench_" + SystemClock.elapsedRealtimeNanos();
+        probe.reset(id);
+        long t0 = SystemClock.elapsedRealtime();
+        try {
+            if (tts.synthesizeToFile(text, new Bundle(), scratch, id) != TextToSpeech.SUCCESS) return null;
+        } catch (Exception e) {
+            return null;
+        }
+        if (!await(probe.done, UTTERANCE_TIMEOUT_MS)) {
+            try { tts.stop(); } catch (Exception e) {}
+            return null;
+        }
+        if (probe.failed || probe.doneAt <= 0) return null;
+        long firstAudio = (probe.firstAudioAt > 0 ? probe.firstAudioAt : probe.doneAt) - t0;
+        return new long[]{firstAudio, probe.doneAt - t0};
+    }
+
+    private static boolean await(CountDownLatch latch, long timeoutMs) {
+        try {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Probe extends UtteranceProgressListener {
+        volatile String id;
+        volatile CountDownLatch done = new CountDownLatch(1);
+        volatile long firstAudioAt;
+        volatile long doneAt;
+        volatile boolean failed;
+
+        void reset(String id) {
+            firstAudioAt = 0;
+            doneAt = 0;
+            failed = false;
+            done = new CountDownLatch(1);
+            this.id = id;
+        }
+
+        private void markAudio(String utteranceId) {
+            if (utteranceId.equals(id) && firstAudioAt == 0) firstAudioAt = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void onStart(String utteranceId) {}
+
+        @Override
+        public void onAudioAvailable(String utteranceId, byte[] audio) {
+            markAudio(utteranceId);
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            if (!utteranceId.equals(id)) return;
+            doneAt = SystemClock.elapsedRealtime();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String utteranceId) {
+            if (!utteranceId.equals(id)) return;
+            failed = true;
+            done.countDown();
+        }
+    }
+
+    private static Result best(List<Result> results, List<EngineRegistry.Engine> installed) {
+        Result best = null;
+        for (Result r : results) {
+            if (!r.isReliable() || !isInstalled(r.packageName, installed)) continue;
+            if (best == null || r.score() < best.score()) best = r;
+        }
+        return best;
+    }
+
+    private static boolean isInstalled(String pkg, List<EngineRegistry.Engine> installed) {
+        for (EngineRegistry.Engine engine : installed) {
+            if (engine.packageName.equals(pkg)) return true;
+        }
+        return false;
+    }
+
+    public static List<Result> getResults(SharedPreferences prefs, String lang) {
+        return parse(prefs.getString(resultKey(lang), null));
+    }
+
+    public static String recommended(SharedPreferences prefs, String lang, List<EngineRegistry.Engine> installed) {
+        Result best = best(getResults(prefs, lang), installed);
+        return best != null ? best.packageName : null;
+    }
+
+    public static void dump(SharedPreferences prefs, PrintWriter pw, String indent) {
+        long time = prefs.getLong(PREF_TIME, 0);
+        if (time == 0) {
+            pw.println(indent + "never run");
+            return;
+        }
+        pw.println(indent + "last run " + (System.currentTimeMillis() - time) / 60000 + " min ago");
+        for (String lang : LANGS) {
+            for (Result r : getResults(prefs, lang)) pw.println(indent + lang + " " + r.describe());
+        }
+    }
+
+    private static String serialize(List<Result> results) {
+        StringBuilder sb = new StringBuilder();
+        for (Result r : results) {
+            sb.append(r.packageName).append('\t').append(r.bindMs).append('\t').append(r.firstAudioMs).append('\t')
+                    .append(r.charsPerSecond).append('\t').append(r.failures).append('\t').append(r.runs).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static List<Result> parse(String saved) {
+        List<Result> list = new ArrayList<>();
+        if (saved == null) return list;
+        for (String line : saved.split("\n")) {
+            String[] f = line.split("\t");
+            if (f.length != 6) continue;
+            try {
+                Result r = new Result(f[0]);
+                r.bindMs = Long.parseLong(f[1]);
+                r.firstAudioMs = Long.parseLong(f[2]);
+                r.charsPerSecond = Float.parseFloat(f[3]);
+                r.failures = Integer.parseInt(f[4]);
+                r.runs = Integer.parseInt(f[5]);
+                list.add(r);
+            } catch (NumberFormatException e) {}
+        }
+        return list;
+    }
+}
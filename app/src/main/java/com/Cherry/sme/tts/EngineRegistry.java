@@ -0,0 +1,216 @@
+package com.cherry.sme.tts;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Build;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.provider.Settings;
+import android.speech.tts.TextToSpeech;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class EngineRegistry {
+
+    private static final String PREF_ENGINES = "engine_registry";
+    private static final String PREF_SEQUENCE = "engine_registry_seq";
+    private static final String FALLBACK_ENGINE = "com.google.android.tts";
+
+    public static class Engine {
+        public final String packageName;
+        public final String label;
+
+        Engine(String packageName, String label) {
+            this.packageName = packageName;
+            this.label = label;
+        }
+    }
+
+    public interface Listener {
+        void onEnginesChanged(List<Engine> engines);
+    }
+
+    public static class PackageChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String pkg = intent.getData() != null ? intent.getData().getSchemeSpecificPart() : null;
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                return;
+            }
+            EngineRegistry.get(context).invalidate(intent.getAction() + " " + pkg);
+        }
+    }
+
+    private static EngineRegistry instance;
+
+    public static synchronized EngineRegistry get(Context context) {
+        if (instance == null) instance = new EngineRegistry(context.getApplicationContext());
+        return instance;
+    }
+
+    public static IntentFilter packageFilter() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        return filter;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final ExecutorService scanner;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean scanQueued = new AtomicBoolean(false);
+    private volatile List<Engine> engines;
+    private volatile String systemDefault;
+    private volatile long lastScanMs = -1;
+
+    private EngineRegistry(Context context) {
+        this.context = context;
+        this.prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        this.scanner = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "TTS-EngineScan");
+            t.setDaemon(true);
+            return t;
+        });
+        this.engines = parse(prefs.getString(PREF_ENGINES, null));
+        readSystemDefault();
+        if (engines == null || packagesChangedSinceScan()) {
+            invalidate(engines == null ? "no saved registry" : "packages changed while stopped");
+        }
+    }
+
+    private boolean packagesChangedSinceScan() {
+        if (Build.VERSION.SDK_INT < 26) return false;
+        try {
+            ChangedPackages changed = context.getPackageManager().getChangedPackages(prefs.getInt(PREF_SEQUENCE, 0));
+            return changed != null && !changed.getPackageNames().isEmpty();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public List<Engine> getEngines() {
+        List<Engine> list = engines;
+        return list != null ? list : Collections.<Engine>emptyList();
+    }
+
+    public boolean isScanned() {
+        return engines != null;
+    }
+
+    public void invalidate(String reason) {
+        if (!scanQueued.compareAndSet(false, true)) return;
+        LogCollector.addLog("ENGINE", "Engine registry invalidated: " + reason);
+        scanner.execute(() -> {
+            scanQueued.set(false);
+            scan();
+        });
+    }
+
+    private void scan() {
+        long start = SystemClock.elapsedRealtime();
+        List<Engine> found = new ArrayList<>();
+        int sequence = 0;
+        try {
+            PackageManager pm = context.getPackageManager();
+            if (Build.VERSION.SDK_INT >= 26) {
+                ChangedPackages changed = pm.getChangedPackages(0);
+                if (changed != null) sequence = changed.getSequenceNumber();
+            }
+            List<ResolveInfo> services = pm.queryIntentServices(new Intent(TextToSpeech.Engine.INTENT_ACTION_TTS_SERVICE), 0);
+            if (services != null) {
+                for (ResolveInfo info : services) {
+                    String pkg = info.serviceInfo.packageName;
+                    if (pkg.equals(context.getPackageName())) continue;
+                    CharSequence label = info.serviceInfo.loadLabel(pm);
+                    found.add(new Engine(pkg, label != null ? label.toString() : pkg));
+                }
+            }
+        } catch (Exception e) {
+            LogCollector.addError("ENGINE", "Engine scan failed", e);
+            if (engines == null) engines = found;
+            return;
+        }
+        readSystemDefault();
+        engines = Collections.unmodifiableList(found);
+        lastScanMs = SystemClock.elapsedRealtime() - start;
+        prefs.edit().putString(PREF_ENGINES, serialize(found)).putInt(PREF_SEQUENCE, sequence).apply();
+        LogCollector.addLog("ENGINE", "Engine registry: " + found.size() + " engines in " + lastScanMs + "ms");
+        for (Listener listener : listeners) {
+            try {
+                listener.onEnginesChanged(engines);
+            } catch (Exception e) {
+                LogCollector.addError("ENGINE", "Engine registry listener failed", e);
+            }
+        }
+    }
+
+    private void readSystemDefault() {
+        try {
+            systemDefault = Settings.Secure.getString(context.getContentResolver(), "tts_default_synth");
+        } catch (Exception e) {
+            systemDefault = null;
+        }
+    }
+
+    public String resolve(String preferred) {
+        String self = context.getPackageName();
+        if (preferred != null && !preferred.isEmpty() && !preferred.equals(self)) return preferred;
+        readSystemDefault();
+        String sysDef = systemDefault;
+        if (sysDef != null && !sysDef.equals(self)) return sysDef;
+        for (Engine engine : getEngines()) {
+            if (!engine.packageName.contains("samsung")) return engine.packageName;
+        }
+        return FALLBACK_ENGINE;
+    }
+
+    public String getSummary() {
+        return "engines=" + getEngines().size() + (isScanned() ? "" : " (not scanned)")
+                + " lastScan=" + lastScanMs + "ms default=" + systemDefault;
+    }
+
+    private static String serialize(List<Engine> list) {
+        StringBuilder sb = new StringBuilder();
+        for (Engine engine : list) {
+            sb.append(engine.packageName).append('\t').append(engine.label.replace('\t', ' ').replace('\n', ' ')).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static List<Engine> parse(String saved) {
+        if (saved == null) return null;
+        List<Engine> list = new ArrayList<>();
+        for (String line : saved.split("\n")) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0) continue;
+            list.add(new Engine(line.substring(0, tab), line.substring(tab + 1)));
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
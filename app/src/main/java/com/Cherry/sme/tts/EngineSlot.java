@@ -0,0 +1,71 @@
+package com.cherry.sme.tts;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EngineSlot {
+
+    public final String lang;
+    public final String label;
+    public final String prefKey;
+
+    volatile DelegateEngine engine;
+    volatile String packageName;
+    final AtomicBoolean ready = new AtomicBoolean(false);
+    volatile boolean configured = false;
+    final AtomicInteger failCount = new AtomicInteger(0);
+
+    volatile long bindStartTime = 0;
+    volatile long lastBindLatencyMs = -1;
+    volatile long lastMemoryDeltaKb = 0;
+    volatile long lastUsedTime = 0;
+    volatile long lastPrewarmTime = 0;
+    volatile boolean prewarmPending = false;
+    volatile Runnable onInitDone;
+    final AtomicInteger bindCount = new AtomicInteger(0);
+    final AtomicInteger idleUnbindCount = new AtomicInteger(0);
+    final LatencyHistogram bindLatency;
+    final LatencyHistogram speakLatency;
+
+    EngineSlot(String lang, String label, String prefKey) {
+        this.lang = lang;
+        this.label = label;
+        this.prefKey = prefKey;
+        this.bindLatency = new LatencyHistogram(label + " bind");
+        this.speakLatency = new LatencyHistogram(label + " speak");
+    }
+
+    void reset() {
+        ready.set(false);
+        configured = false;
+        failCount.set(0);
+    }
+
+    String state() {
+        if (engine == null) return "unbound";
+        return ready.get() ? "ready" : "binding";
+    }
+
+    boolean isBound() {
+        return engine != null;
+    }
+
+    void markUsed() {
+        lastUsedTime = System.currentTimeMillis();
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(label).append(": ");
+        if (engine == null) {
+            sb.append("unbound");
+        } else {
+            sb.append(ready.get() ? "ready" : "binding").append(" (").append(packageName).append(")");
+        }
+        sb.append(" binds=").append(bindCount.get());
+        if (lastBindLatencyMs >= 0) sb.append(" lastBind=").append(lastBindLatencyMs).append("ms");
+        sb.append(" mem=").append(lastMemoryDeltaKb / 1024).append("MB");
+        sb.append(" idleUnbinds=").append(idleUnbindCount.get());
+        return sb.toString();
+    }
+}
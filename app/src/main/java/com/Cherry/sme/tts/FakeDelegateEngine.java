@@ -0,0 +1,256 @@
+package com.cherry.sme.tts;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FakeDelegateEngine implements DelegateEngine {
+
+    public static final String PACKAGE_PREFIX = "fake.";
+
+    public static class Config {
+        public long initDelayMs = 300;
+        public int charsPerSecond = 80;
+        public double hangProbability = 0.01;
+        public double errorProbability = 0.01;
+        public double rejectProbability = 0.005;
+        public double throwProbability = 0.0;
+        public double initFailProbability = 0.0;
+        public int sampleRate = 16000;
+        public long seed = 1;
+        public final Stats stats = new Stats();
+    }
+
+    public static class Stats {
+        final AtomicLong inits = new AtomicLong(0);
+        final AtomicLong initFailures = new AtomicLong(0);
+        final AtomicLong speaks = new AtomicLong(0);
+        final AtomicLong done = new AtomicLong(0);
+        final AtomicLong errors = new AtomicLong(0);
+        final AtomicLong hangs = new AtomicLong(0);
+        final AtomicLong rejects = new AtomicLong(0);
+        final AtomicLong throwsInjected = new AtomicLong(0);
+        final AtomicLong stops = new AtomicLong(0);
+        final AtomicLong recoveries = new AtomicLong(0);
+        final AtomicLong recoveryTotalMs = new AtomicLong(0);
+        volatile long recoveryMaxMs;
+        private final ConcurrentHashMap<String, Long> pendingFaults = new ConcurrentHashMap<>();
+
+        void fault(String engine) {
+            pendingFaults.putIfAbsent(engine, SystemClock.elapsedRealtime());
+        }
+
+        void success(String engine) {
+            done.incrementAndGet();
+            Long since = pendingFaults.remove(engine);
+            if (since == null) return;
+            long ms = SystemClock.elapsedRealtime() - since;
+            recoveries.incrementAndGet();
+            recoveryTotalMs.addAndGet(ms);
+            if (ms > recoveryMaxMs) recoveryMaxMs = ms;
+        }
+
+        public int getUnrecovered() {
+            return pendingFaults.size();
+        }
+
+        public String getSummary() {
+            long n = recoveries.get();
+            return String.format(Locale.US, "fake: inits=%d (failed %d) speaks=%d done=%d errors=%d hangs=%d rejects=%d throws=%d stops=%d recovery n=%d avg=%dms max=%dms unrecovered=%d",
+                    inits.get(), initFailures.get(), speaks.get(), done.get(), errors.get(), hangs.get(),
+                    rejects.get(), throwsInjected.get(), stops.get(), n, n > 0 ? recoveryTotalMs.get() / n : 0,
+                    recoveryMaxMs, getUnrecovered());
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor timer;
+
+    private static synchronized ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "TTS-FakeEngine");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return timer;
+    }
+
+    private final Config config;
+    private final String name;
+    private final Random random;
+    private volatile UtteranceProgressListener listener;
+    private volatile boolean isShutdown;
+    private volatile int epoch;
+    private volatile float speechRate = 1.0f;
+    private long busyUntil;
+
+    public FakeDelegateEngine(Config config, TextToSpeech.OnInitListener initListener, String name) {
+        this.config = config;
+        this.name = name;
+        long instance = config.stats.inits.incrementAndGet();
+        this.random = new Random(config.seed * 31 + name.hashCode() * 17L + instance);
+        final boolean failInit = random.nextDouble() < config.initFailProbability;
+        timer().schedule(() -> {
+            if (isShutdown) return;
+            if (failInit) config.stats.initFailures.incrementAndGet();
+            if (initListener != null) initListener.onInit(failInit ? TextToSpeech.ERROR : TextToSpeech.SUCCESS);
+        }, config.initDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int speak(CharSequence text, int queueMode, Bundle params, String utteranceId) {
+        return enqueue(text, queueMode, null, utteranceId);
+    }
+
+    @Override
+    public int synthesizeToFile(CharSequence text, Bundle params, File file, String utteranceId) {
+        return enqueue(text, TextToSpeech.QUEUE_ADD, file, utteranceId);
+    }
+
+    private int enqueue(CharSequence text, int queueMode, final File file, final String utteranceId) {
+        if (isShutdown) return TextToSpeech.ERROR;
+        Stats stats = config.stats;
+        stats.speaks.incrementAndGet();
+        double roll;
+        boolean fail;
+        synchronized (random) {
+            roll = random.nextDouble();
+            fail = random.nextDouble() < config.errorProbability;
+        }
+        if ((roll -= config.throwProbability) < 0) {
+            stats.throwsInjected.incrementAndGet();
+            stats.fault(name);
+            throw new IllegalStateException(name + " injected failure");
+        }
+        if ((roll -= config.rejectProbability) < 0) {
+            stats.rejects.incrementAndGet();
+            stats.fault(name);
+            return TextToSpeech.ERROR;
+        }
+        if (roll - config.hangProbability < 0) {
+            stats.hangs.incrementAndGet();
+            stats.fault(name);
+            return TextToSpeech.SUCCESS;
+        }
+        long durationMs = (long) (text.length() * 1000L / Math.max(1, config.charsPerSecond) / speechRate);
+        final int myEpoch;
+        long startAt;
+        synchronized (this) {
+            if (queueMode == TextToSpeech.QUEUE_FLUSH) {
+                epoch++;
+                busyUntil = 0;
+            }
+            myEpoch = epoch;
+            long now = SystemClock.elapsedRealtime();
+            startAt = Math.max(now, busyUntil);
+            busyUntil = startAt + durationMs;
+            startAt -= now;
+        }
+        ScheduledThreadPoolExecutor t = timer();
+        t.schedule(() -> {
+            UtteranceProgressListener l = listener;
+            if (epoch == myEpoch && !isShutdown && l != null) l.onStart(utteranceId);
+        }, startAt, TimeUnit.MILLISECONDS);
+        t.schedule(() -> {
+            if (epoch != myEpoch || isShutdown) return;
+            UtteranceProgressListener l = listener;
+            boolean ok = !fail && (file == null || writeSilence(file, durationMs));
+            if (ok) {
+                stats.success(name);
+                if (l != null) l.onDone(utteranceId);
+            } else {
+                stats.errors.incrementAndGet();
+                stats.fault(name);
+                if (l != null) l.onError(utteranceId);
+            }
+        }, startAt + durationMs, TimeUnit.MILLISECONDS);
+        return TextToSpeech.SUCCESS;
+    }
+
+    private boolean writeSilence(File file, long durationMs) {
+        long dataLength = durationMs * config.sampleRate / 1000 * 2;
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            WavIO.writeHeader(out, config.sampleRate, 1, 16, dataLength);
+            byte[] zeros = new byte[4096];
+            long remaining = dataLength;
+            while (remaining > 0) {
+                int n = (int) Math.min(zeros.length, remaining);
+                out.write(zeros, 0, n);
+                remaining -= n;
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            if (out != null) {
+                try { out.close(); } catch (Exception e) {}
+            }
+        }
+    }
+
+    @Override
+    public int stop() {
+        synchronized (this) {
+            epoch++;
+            busyUntil = 0;
+        }
+        config.stats.stops.incrementAndGet();
+        return TextToSpeech.SUCCESS;
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+        stop();
+    }
+
+    @Override
+    public int setLanguage(Locale locale) {
+        return TextToSpeech.LANG_AVAILABLE;
+    }
+
+    @Override
+    public Set<Voice> getVoices() {
+        return new HashSet<>();
+    }
+
+    @Override
+    public int setVoice(Voice voice) {
+        return TextToSpeech.SUCCESS;
+    }
+
+    @Override
+    public int setSpeechRate(float speechRate) {
+        this.speechRate = Math.max(0.1f, speechRate);
+        return TextToSpeech.SUCCESS;
+    }
+
+    @Override
+    public int setPitch(float pitch) {
+        return TextToSpeech.SUCCESS;
+    }
+
+    @Override
+    public int setOnUtteranceProgressListener(UtteranceProgressListener listener) {
+        this.listener = listener;
+        return TextToSpeech.SUCCESS;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cherry.sme.tts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LanguagePredictor {
+
+    private static final String[] LANGS = {"SHAN", "MYANMAR", "ENGLISH"};
+    private static final int MIN_SAMPLES = 3;
+    private static final int DECAY_THRESHOLD = 256;
+    private static final int MIN_SHARE_PERCENT = 20;
+    private static final int MAX_CALLERS = 64;
+
+    private final ConcurrentHashMap<Integer, int[]> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong predictions = new AtomicLong(0);
+    private final AtomicLong prewarmedFirstChunks = new AtomicLong(0);
+    private final AtomicLong coldFirstChunks = new AtomicLong(0);
+    private final AtomicLong prewarmedLatencySum = new AtomicLong(0);
+    private final AtomicLong coldLatencySum = new AtomicLong(0);
+
+    public List<String> predict(int callerUid) {
+        List<String> result = new ArrayList<>(LANGS.length);
+        int[] hist = histograms.get(callerUid);
+        if (hist == null) return result;
+        synchronized (hist) {
+            int total = 0;
+            for (int count : hist) total += count;
+            if (total < MIN_SAMPLES) return result;
+            for (int i = 0; i < LANGS.length; i++) {
+                if (hist[i] * 100 >= total * MIN_SHARE_PERCENT) result.add(LANGS[i]);
+            }
+        }
+        if (!result.isEmpty()) predictions.incrementAndGet();
+        return result;
+    }
+
+    public void record(int callerUid, List<TTSUtils.Chunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) return;
+        int[] hist = histograms.get(callerUid);
+        if (hist == null) {
+            if (histograms.size() >= MAX_CALLERS) histograms.clear();
+            int[] created = new int[LANGS.length];
+            hist = histograms.putIfAbsent(callerUid, created);
+            if (hist == null) hist = created;
+        }
+        synchronized (hist) {
+            boolean[] seen = new boolean[LANGS.length];
+            for (TTSUtils.Chunk chunk : chunks) {
+                int idx = indexOf(chunk.lang);
+                if (idx >= 0) seen[idx] = true;
+            }
+            int total = 0;
+            for (int i = 0; i < LANGS.length; i++) {
+                if (seen[i]) hist[i]++;
+                total += hist[i];
+            }
+            if (total > DECAY_THRESHOLD) {
+                for (int i = 0; i < LANGS.length; i++) hist[i] /= 2;
+            }
+        }
+    }
+
+    public void recordFirstChunk(boolean prewarmed, long latencyMs) {
+        if (prewarmed) {
+            prewarmedFirstChunks.incrementAndGet();
+            prewarmedLatencySum.addAndGet(latencyMs);
+        } else {
+            coldFirstChunks.incrementAndGet();
+            coldLatencySum.addAndGet(latencyMs);
+        }
+    }
+
+    private static int indexOf(String lang) {
+        for (int i = 0; i < LANGS.length; i++) {
+            if (LANGS[i].equals(lang)) return i;
+        }
+        return -1;
+    }
+
+    public String getSummary() {
+        long hits = prewarmedFirstChunks.get();
+        long misses = coldFirstChunks.get();
+        return "callers=" + histograms.size()
+                + " predictions=" + predictions.get()
+                + " prewarmedFirstChunks=" + hits
+                + " avgPrewarmed=" + (hits > 0 ? prewarmedLatencySum.get() / hits : 0) + "ms"
+                + " coldFirstChunks=" + misses
+                + " avgCold=" + (misses > 0 ? coldLatencySum.get() / misses : 0) + "ms";
+    }
+}
@@ -0,0 +1,76 @@
+package com.cherry.sme.tts;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    public final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private volatile long max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public void record(long ms) {
+        if (ms < 0) return;
+        int i = 0;
+        while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) i++;
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        sum.addAndGet(ms);
+        if (ms > max) max = ms;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long percentile(double p) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long target = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return Math.min(BOUNDS_MS[i], max);
+        }
+        return max;
+    }
+
+    public String getSummary() {
+        long n = count.get();
+        return String.format(Locale.US, "%s: n=%d avg=%dms p50<=%dms p95<=%dms p99<=%dms max=%dms",
+                name, n, n > 0 ? sum.get() / n : 0, percentile(0.50), percentile(0.95), percentile(0.99), max);
+    }
+
+    public void dumpBuckets(PrintWriter pw, String indent) {
+        long n = count.get();
+        if (n == 0) return;
+        StringBuilder sb = new StringBuilder(indent);
+        for (int i = 0; i <= BOUNDS_MS.length; i++) {
+            long c = buckets.get(i);
+            if (c == 0) continue;
+            sb.append(i < BOUNDS_MS.length ? "<=" + BOUNDS_MS[i] : ">" + BOUNDS_MS[BOUNDS_MS.length - 1])
+                    .append("ms:").append(c).append(' ');
+        }
+        pw.println(sb.toString());
+    }
+
+    public void dumpCompact(PrintWriter pw, String prefix) {
+        long n = count.get();
+        pw.println(prefix + ".count=" + n);
+        pw.println(prefix + ".avg_ms=" + (n > 0 ? sum.get() / n : 0));
+        pw.println(prefix + ".p50_ms=" + percentile(0.50));
+        pw.println(prefix + ".p95_ms=" + percentile(0.95));
+        pw.println(prefix + ".p99_ms=" + percentile(0.99));
+        pw.println(prefix + ".max_ms=" + max);
+    }
+}
@@ -0,0 +1,196 @@
+package com.cherry.sme.tts;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.speech.tts.SynthesisCallback;
+import android.speech.tts.SynthesisRequest;
+import android.speech.tts.TextToSpeech;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadHarness {
+
+    public static final String ACTION_LOAD_TEST = "com.cherry.sme.tts.action.LOAD_TEST";
+    public static final String EXTRA_REQUESTS = "requests";
+    public static final String EXTRA_STOP_PROBABILITY = "stop_probability";
+    public static final String EXTRA_SEED = "seed";
+    public static final String EXTRA_INIT_DELAY_MS = "init_delay_ms";
+    public static final String EXTRA_CHARS_PER_SECOND = "chars_per_second";
+    public static final String EXTRA_HANG_PROBABILITY = "hang_probability";
+    public static final String EXTRA_ERROR_PROBABILITY = "error_probability";
+    public static final String EXTRA_REJECT_PROBABILITY = "reject_probability";
+    public static final String EXTRA_THROW_PROBABILITY = "throw_probability";
+    public static final String EXTRA_INIT_FAIL_PROBABILITY = "init_fail_probability";
+    public static final String EXTRA_TIMEOUT_MS = "utterance_timeout_ms";
+    public static final int DEFAULT_REQUESTS = 2000;
+    public static final float DEFAULT_STOP_PROBABILITY = 0.1f;
+    public static final long DEFAULT_TIMEOUT_MS = 2000;
+
+    private static final String[] PIECES = {
+            "\u1019\u1082\u103A\u1087\u101E\u102F\u1004\u103A\u1076\u1083\u1088",
+            "\u1019\u107C\u103A\u1038 \u1010\u1084\u1089",
+            "\u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B",
+            "\u1000\u103B\u1031\u1038\u1007\u1030\u1038\u1015\u103C\u102F\u1015\u103C\u102E\u1038",
+            "\u1019\u103C\u1014\u103A\u1019\u102C\u104B",
+            "Settings",
+            "Double tap to activate",
+            "Battery 80 percent",
+            "12:45"
+    };
+
+    public static class Report {
+        public int requests;
+        public int stopsIssued;
+        public long elapsedMs;
+        public long chars;
+        public long audioBytes;
+        public long[] latencyMs;
+        public String engineSummary;
+
+        long percentile(double p) {
+            if (latencyMs.length == 0) return 0;
+            int i = (int) Math.min(latencyMs.length - 1, Math.round(p * (latencyMs.length - 1)));
+            return latencyMs[i];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(1, elapsedMs) / 1000.0;
+            return String.format(Locale.US, "Load test: %d requests in %.1fs (%.1f req/s, %.0f chars/s) latency p50=%dms p95=%dms p99=%dms max=%dms stops=%d audio=%dKB\n%s",
+                    requests, seconds, requests / seconds, chars / seconds, percentile(0.50), percentile(0.95),
+                    percentile(0.99), percentile(1.0), stopsIssued, audioBytes / 1024, engineSummary);
+        }
+    }
+
+    static class CountingCallback implements SynthesisCallback {
+        final AtomicLong bytes;
+        volatile boolean started;
+        volatile boolean finished;
+
+        CountingCallback(AtomicLong bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int getMaxBufferSize() {
+            return 8192;
+        }
+
+        @Override
+        public int start(int sampleRateInHz, int audioFormat, int channelCount) {
+            started = true;
+            return TextToSpeech.SUCCESS;
+        }
+
+        @Override
+        public int audioAvailable(byte[] buffer, int offset, int length) {
+            bytes.addAndGet(length);
+            return TextToSpeech.SUCCESS;
+        }
+
+        @Override
+        public int done() {
+            finished = true;
+            return TextToSpeech.SUCCESS;
+        }
+
+        @Override
+        public void error() {
+            finished = true;
+        }
+
+        @Override
+        public void error(int errorCode) {
+            finished = true;
+        }
+
+        @Override
+        public boolean hasStarted() {
+            return started;
+        }
+
+        @Override
+        public boolean hasFinished() {
+            return finished;
+        }
+    }
+
+    public static FakeDelegateEngine.Config configFromIntent(Intent intent) {
+        FakeDelegateEngine.Config config = new FakeDelegateEngine.Config();
+        config.seed = intent.getLongExtra(EXTRA_SEED, config.seed);
+        config.initDelayMs = intent.getLongExtra(EXTRA_INIT_DELAY_MS, config.initDelayMs);
+        config.charsPerSecond = intent.getIntExtra(EXTRA_CHARS_PER_SECOND, config.charsPerSecond);
+        config.hangProbability = intent.getFloatExtra(EXTRA_HANG_PROBABILITY, (float) config.hangProbability);
+        config.errorProbability = intent.getFloatExtra(EXTRA_ERROR_PROBABILITY, (float) config.errorProbability);
+        config.rejectProbability = intent.getFloatExtra(EXTRA_REJECT_PROBABILITY, (float) config.rejectProbability);
+        config.throwProbability = intent.getFloatExtra(EXTRA_THROW_PROBABILITY, (float) config.throwProbability);
+        config.initFailProbability = intent.getFloatExtra(EXTRA_INIT_FAIL_PROBABILITY, (float) config.initFailProbability);
+        return config;
+    }
+
+    private final AutoTTSManagerService service;
+    private final FakeDelegateEngine.Config config;
+
+    LoadHarness(AutoTTSManagerService service, FakeDelegateEngine.Config config) {
+        this.service = service;
+        this.config = config;
+    }
+
+    public Report run(int requests, float stopProbability) {
+        Random random = new Random(config.seed);
+        ScheduledThreadPoolExecutor stopper = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "TTS-LoadStop");
+            t.setDaemon(true);
+            return t;
+        });
+        Report report = new Report();
+        AtomicLong audioBytes = new AtomicLong(0);
+        long[] latencies = new long[requests];
+        int completed = 0;
+        long start = SystemClock.elapsedRealtime();
+        try {
+            for (int i = 0; i < requests; i++) {
+                if (Thread.currentThread().isInterrupted()) break;
+                String text = nextText(random);
+                report.chars += text.length();
+                if (random.nextFloat() < stopProbability) {
+                    long expectedMs = text.length() * 1000L / Math.max(1, config.charsPerSecond);
+                    stopper.schedule(service::onStop, (long) (random.nextDouble() * (expectedMs + 200)), TimeUnit.MILLISECONDS);
+                    report.stopsIssued++;
+                }
+                SynthesisRequest request = new SynthesisRequest(text, new Bundle());
+                long t0 = SystemClock.elapsedRealtime();
+                service.onSynthesizeText(request, new CountingCallback(audioBytes));
+                latencies[completed++] = SystemClock.elapsedRealtime() - t0;
+                if ((i + 1) % 200 == 0) {
+                    LogCollector.addLog("LOADTEST", (i + 1) + "/" + requests + " requests, " + config.stats.getSummary());
+                }
+            }
+        } finally {
+            stopper.shutdownNow();
+        }
+        report.elapsedMs = SystemClock.elapsedRealtime() - start;
+        report.requests = completed;
+        report.latencyMs = Arrays.copyOf(latencies, completed);
+        Arrays.sort(report.latencyMs);
+        report.audioBytes = audioBytes.get();
+        report.engineSummary = config.stats.getSummary();
+        return report;
+    }
+
+    private static String nextText(Random random) {
+        int pieces = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return sb.toString();
+    }
+}
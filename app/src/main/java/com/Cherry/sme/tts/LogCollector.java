@@ -84,6 +84,18 @@ public class LogCollector {
         failedSpeaks++;
     }
 
+    public static int getTotalSpeakRequests() {
+        return totalSpeakRequests;
+    }
+
+    public static int getSuccessfulSpeaks() {
+        return successfulSpeaks;
+    }
+
+    public static int getFailedSpeaks() {
+        return failedSpeaks;
+    }
+
     public static synchronized String getLogs() {
         if (logBuilder.length() == 0 && errorCount.get() == 0) {
             return "No logs recorded yet.\n\nService is idle.";
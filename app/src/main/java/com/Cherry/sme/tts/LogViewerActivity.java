@@ -5,6 +5,7 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.os.Bundle;
@@ -23,7 +24,10 @@ public class LogViewerActivity extends Activity {
     private TextView logTextView;
     private Handler autoRefreshHandler;
     private Runnable autoRefreshRunnable;
-    private boolean showErrorsOnly = false;
+    private static final int VIEW_ALL = 0;
+    private static final int VIEW_ERRORS = 1;
+    private static final int VIEW_STARTUP = 2;
+    private int viewMode = VIEW_ALL;
     private ScrollView scrollView;
 
     @Override
@@ -94,6 +98,30 @@ public class LogViewerActivity extends Activity {
         buttonRow.addView(btnClear);
         root.addView(buttonRow);
 
+        LinearLayout toolRow = new LinearLayout(this);
+        toolRow.setOrientation(LinearLayout.HORIZONTAL);
+        toolRow.setPadding(10, 0, 10, 10);
+        toolRow.setBackgroundColor(Color.parseColor("#2D2D2D"));
+        toolRow.setGravity(Gravity.CENTER);
+
+        Button btnBench = new Button(this);
+        btnBench.setText("Benchmark");
+        btnBench.setTextSize(12f);
+        btnBench.setAllCaps(false);
+        btnBench.setPadding(20, 10, 20, 10);
+        btnBench.setLayoutParams(btnParams);
+
+        Button btnStartup = new Button(this);
+        btnStartup.setText("Startup");
+        btnStartup.setTextSize(12f);
+        btnStartup.setAllCaps(false);
+        btnStartup.setPadding(20, 10, 20, 10);
+        btnStartup.setLayoutParams(btnParams);
+
+        toolRow.addView(btnBench);
+        toolRow.addView(btnStartup);
+        root.addView(toolRow);
+
         scrollView = new ScrollView(this);
         scrollView.setFillViewport(true);
         LinearLayout.LayoutParams scrollParams = new LinearLayout.LayoutParams(
@@ -124,7 +152,7 @@ public class LogViewerActivity extends Activity {
         btnAll.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                showErrorsOnly = false;
+                viewMode = VIEW_ALL;
                 refreshLogs();
                 Toast.makeText(LogViewerActivity.this, "Showing all logs", Toast.LENGTH_SHORT).show();
             }
@@ -133,7 +161,7 @@ public class LogViewerActivity extends Activity {
         btnErrors.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                showErrorsOnly = true;
+                viewMode = VIEW_ERRORS;
                 refreshLogs();
                 Toast.makeText(LogViewerActivity.this, "Showing errors only", Toast.LENGTH_SHORT).show();
             }
@@ -171,6 +199,35 @@ public class LogViewerActivity extends Activity {
             }
         });
 
+        btnBench.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                TTSBenchmark.runAllAsync();
+                Toast.makeText(LogViewerActivity.this, "Benchmark started, results will appear in logs", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        btnBench.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) return false;
+                Intent intent = new Intent(LogViewerActivity.this, AutoTTSManagerService.class);
+                intent.setAction(LoadHarness.ACTION_LOAD_TEST);
+                startService(intent);
+                Toast.makeText(LogViewerActivity.this, "Load test started against fake engines", Toast.LENGTH_SHORT).show();
+                return true;
+            }
+        });
+
+        btnStartup.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                viewMode = VIEW_STARTUP;
+                refreshLogs();
+                Toast.makeText(LogViewerActivity.this, "Showing startup profiles", Toast.LENGTH_SHORT).show();
+            }
+        });
+
         autoRefreshHandler = new Handler();
         autoRefreshRunnable = new Runnable() {
             @Override
@@ -184,8 +241,10 @@ public class LogViewerActivity extends Activity {
 
     private void refreshLogs() {
         String logs;
-        if (showErrorsOnly) {
+        if (viewMode == VIEW_ERRORS) {
             logs = LogCollector.getErrorsOnly();
+        } else if (viewMode == VIEW_STARTUP) {
+            logs = StartupTracer.getReport(this);
         } else {
             logs = LogCollector.getLogs();
         }
@@ -1,24 +1,19 @@
 package com.cherry.sme.tts;
 
 import android.app.Activity;
-import android.app.ProgressDialog;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.PowerManager;
 import android.preference.PreferenceManager;
 import android.provider.Settings;
 import android.view.View;
-import android.view.WindowManager;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
@@ -26,13 +21,25 @@ import android.widget.TextView;
 import android.widget.Toast;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class MainActivity extends Activity {
 
     private SharedPreferences prefs;
     private ArrayList<String> engineNames = new ArrayList<>();
     private ArrayList<String> enginePackages = new ArrayList<>();
-    private ProgressDialog progressDialog;
+    private EngineRegistry engineRegistry;
+    private final EngineRegistry.Listener engineListener = new EngineRegistry.Listener() {
+        @Override
+        public void onEnginesChanged(final List<EngineRegistry.Engine> engines) {
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isFinishing()) showEngines(engines);
+                }
+            });
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -41,24 +48,9 @@ public class MainActivity extends Activity {
 
         prefs = PreferenceManager.getDefaultSharedPreferences(this);
 
-        showScanDialog();
-
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                loadInstalledEngines();
-
-                setupEngineUI(R.id.spinnerShan, "pref_engine_shan", "com.espeak.ng");
-                setupEngineUI(R.id.spinnerBurmese, "pref_engine_myanmar", "org.saomaicenter.myanmartts");
-                setupEngineUI(R.id.spinnerEnglish, "pref_engine_english", "com.google.android.tts");
-
-                if (progressDialog != null && progressDialog.isShowing()) {
-                    progressDialog.dismiss();
-                }
-
-                getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-            }
-        }, 1500);
+        engineRegistry = EngineRegistry.get(this);
+        engineRegistry.addListener(engineListener);
+        showEngines(engineRegistry.getEngines());
 
         setupDonation(R.id.btnKpay, "09750091817", "KBZ Pay Number Copied");
         setupDonation(R.id.btnWave, "09750091817", "Wave Pay Number Copied");
@@ -69,9 +61,53 @@ public class MainActivity extends Activity {
 
         setupBatteryOptimization();
         setupAutoStart();
+        setupEngineBenchmark();
         updateBatteryStatus();
     }
 
+    private void setupEngineBenchmark() {
+        final TextView btn = findViewById(R.id.btnBenchmarkEngines);
+        if (EngineBenchmark.isRunning()) btn.setText("Benchmark running...");
+        btn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                boolean started = EngineBenchmark.start(MainActivity.this, true, new EngineBenchmark.Listener() {
+                    @Override
+                    public void onProgress(final String status) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                btn.setText(status);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFinished(final Map<String, String> recommended) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                btn.setText("Benchmark & Pick Fastest Engines");
+                                if (isFinishing()) return;
+                                showEngines(engineRegistry.getEngines());
+                                Toast.makeText(MainActivity.this, recommended.isEmpty()
+                                        ? "No reliable engine found, see logs"
+                                        : "Fastest engines selected for " + recommended.size() + " languages",
+                                        Toast.LENGTH_LONG).show();
+                            }
+                        });
+                    }
+                });
+                if (started) {
+                    btn.setText("Benchmark running...");
+                    Toast.makeText(MainActivity.this, "Testing installed engines, this may take a minute", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(MainActivity.this, "Benchmark already running", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
     private void setupBatteryOptimization() {
         View btn = findViewById(R.id.btnBatteryOptimize);
         btn.setOnClickListener(new View.OnClickListener() {
@@ -246,15 +282,6 @@ public class MainActivity extends Activity {
         updateBatteryStatus();
     }
 
-    private void showScanDialog() {
-        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-
-        progressDialog = new ProgressDialog(this);
-        progressDialog.setMessage("Scanning engines, please wait...");
-        progressDialog.setCancelable(false);
-        progressDialog.show();
-    }
-
     private void setupDonation(int viewId, final String number, final String msg) {
         View btn = findViewById(viewId);
         btn.setOnClickListener(new View.OnClickListener() {
@@ -282,9 +309,10 @@ public class MainActivity extends Activity {
         }
     }
 
-    private void setupEngineUI(int spinnerId, String pkgKey, String defPkg) {
+    private void setupEngineUI(int spinnerId, String pkgKey, String lang, String defPkg) {
         Spinner spinner = findViewById(spinnerId);
-        setSpinnerSelection(spinner, pkgKey, defPkg);
+        String recommended = EngineBenchmark.recommended(prefs, lang, engineRegistry.getEngines());
+        setSpinnerSelection(spinner, pkgKey, recommended != null ? recommended : defPkg);
     }
 
     private void setupOpenSystemSettings(int viewId) {
@@ -306,23 +334,23 @@ public class MainActivity extends Activity {
         });
     }
 
-    private void loadInstalledEngines() {
-        Intent intent = new Intent("android.intent.action.TTS_SERVICE");
-        List<ResolveInfo> resolveInfos = getPackageManager().queryIntentServices(intent, PackageManager.GET_META_DATA);
+    @Override
+    protected void onDestroy() {
+        if (engineRegistry != null) engineRegistry.removeListener(engineListener);
+        super.onDestroy();
+    }
+
+    private void showEngines(List<EngineRegistry.Engine> engines) {
         engineNames.clear();
         enginePackages.clear();
 
-        for (ResolveInfo info : resolveInfos) {
-            String pkg = info.serviceInfo.packageName;
-            if (!pkg.equals(getPackageName())) {
-                String label = info.serviceInfo.loadLabel(getPackageManager()).toString();
-                engineNames.add(label);
-                enginePackages.add(pkg);
-            }
+        for (EngineRegistry.Engine engine : engines) {
+            engineNames.add(engine.label);
+            enginePackages.add(engine.packageName);
         }
 
         if (engineNames.isEmpty()) {
-            engineNames.add("No Engines Found");
+            engineNames.add(engineRegistry.isScanned() ? "No Engines Found" : "Scanning engines...");
             enginePackages.add("");
         }
 
@@ -335,6 +363,10 @@ public class MainActivity extends Activity {
         spShan.setAdapter(adapter);
         spBur.setAdapter(adapter);
         spEng.setAdapter(adapter);
+
+        setupEngineUI(R.id.spinnerShan, "pref_engine_shan", "SHAN", "com.espeak.ng");
+        setupEngineUI(R.id.spinnerBurmese, "pref_engine_myanmar", "MYANMAR", "org.saomaicenter.myanmartts");
+        setupEngineUI(R.id.spinnerEnglish, "pref_engine_english", "ENGLISH", "com.google.android.tts");
     }
 
     private void setSpinnerSelection(Spinner spinner, final String key, String def) {
@@ -345,7 +377,7 @@ public class MainActivity extends Activity {
         spinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                if (!enginePackages.isEmpty() && position >= 0) {
+                if (position >= 0 && position < enginePackages.size() && !enginePackages.get(position).isEmpty()) {
                     prefs.edit().putString(key, enginePackages.get(position)).apply();
                 }
             }
@@ -0,0 +1,367 @@
+package com.cherry.sme.tts;
+
+import android.os.PersistableBundle;
+import android.speech.tts.TtsSpan;
+import android.text.Spanned;
+import android.text.style.LocaleSpan;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class MarkupSegmenter {
+
+    public static final String PREF_ENABLED = "pref_markup_enabled";
+    public static final int MAX_BREAK_MS = 10000;
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+
+    public static class Segment {
+        public final String text;
+        public final String lang;
+        public final int breakMs;
+        public final float rate;
+        public final float pitch;
+
+        Segment(String text, String lang, int breakMs, float rate, float pitch) {
+            this.text = text;
+            this.lang = lang;
+            this.breakMs = breakMs;
+            this.rate = rate;
+            this.pitch = pitch;
+        }
+
+        public boolean isBreak() {
+            return text == null;
+        }
+    }
+
+    private static class State {
+        String lang;
+        float rate = 1.0f;
+        float pitch = 1.0f;
+        String sayAs;
+        boolean skip;
+
+        State copy() {
+            State s = new State();
+            s.lang = lang;
+            s.rate = rate;
+            s.pitch = pitch;
+            s.sayAs = sayAs;
+            s.skip = skip;
+            return s;
+        }
+    }
+
+    private static class Builder {
+        final List<Segment> segments = new ArrayList<>();
+        final StringBuilder text = new StringBuilder();
+        String lang;
+        float rate = 1.0f;
+        float pitch = 1.0f;
+
+        void append(CharSequence s, State state) {
+            if (s.length() == 0) return;
+            if (text.length() > 0 && !same(state)) flush();
+            if (text.length() == 0) {
+                lang = state.lang;
+                rate = state.rate;
+                pitch = state.pitch;
+            }
+            text.append(s);
+        }
+
+        boolean same(State state) {
+            return rate == state.rate && pitch == state.pitch
+                    && (lang == null ? state.lang == null : lang.equals(state.lang));
+        }
+
+        void addBreak(int ms) {
+            flush();
+            int n = segments.size();
+            if (n > 0 && segments.get(n - 1).isBreak()) {
+                Segment prev = segments.remove(n - 1);
+                ms = Math.min(MAX_BREAK_MS, prev.breakMs + ms);
+            }
+            segments.add(new Segment(null, null, ms, 1.0f, 1.0f));
+        }
+
+        void flush() {
+            if (text.length() == 0) return;
+            if (text.toString().trim().length() > 0) {
+                segments.add(new Segment(text.toString(), lang, -1, rate, pitch));
+            }
+            text.setLength(0);
+        }
+
+        List<Segment> finish() {
+            flush();
+            return segments;
+        }
+    }
+
+    public static List<Segment> parse(CharSequence input) {
+        if (input == null || input.length() == 0) return new ArrayList<>();
+        if (input instanceof Spanned) {
+            Spanned spanned = (Spanned) input;
+            if (spanned.getSpans(0, input.length(), LocaleSpan.class).length > 0
+                    || spanned.getSpans(0, input.length(), TtsSpan.class).length > 0) {
+                return parseSpanned(spanned);
+            }
+        }
+        String text = input.toString();
+        if (looksLikeSsml(text)) {
+            try {
+                return parseSsml(text);
+            } catch (Exception e) {
+                LogCollector.addWarn("MARKUP", "SSML parse failed, reading as plain text: " + e.getMessage());
+                return plain(decodeEntities(TAG_PATTERN.matcher(text).replaceAll(" ")));
+            }
+        }
+        return plain(text);
+    }
+
+    public static boolean looksLikeSsml(String text) {
+        int i = 0;
+        int len = text.length();
+        while (i < len && Character.isWhitespace(text.charAt(i))) i++;
+        return text.startsWith("<speak", i) || text.startsWith("<?xml", i);
+    }
+
+    public static List<Segment> plain(String text) {
+        List<Segment> segments = new ArrayList<>(1);
+        segments.add(new Segment(text, null, -1, 1.0f, 1.0f));
+        return segments;
+    }
+
+    static List<Segment> parseSpanned(Spanned spanned) {
+        Builder builder = new Builder();
+        State state = new State();
+        int len = spanned.length();
+        int i = 0;
+        while (i < len) {
+            int next = Math.min(spanned.nextSpanTransition(i, len, LocaleSpan.class),
+                    spanned.nextSpanTransition(i, len, TtsSpan.class));
+            if (next <= i) next = len;
+            LocaleSpan[] locales = spanned.getSpans(i, next, LocaleSpan.class);
+            state.lang = null;
+            for (LocaleSpan span : locales) {
+                String lang = langForLocale(span.getLocale());
+                if (lang != null) state.lang = lang;
+            }
+            String replacement = null;
+            int replaceEnd = next;
+            for (TtsSpan span : spanned.getSpans(i, next, TtsSpan.class)) {
+                String r = spokenForm(span, spanned.subSequence(
+                        Math.max(0, spanned.getSpanStart(span)), Math.min(len, spanned.getSpanEnd(span))).toString());
+                if (r != null && spanned.getSpanStart(span) >= i) {
+                    replacement = r;
+                    replaceEnd = Math.max(next, spanned.getSpanEnd(span));
+                }
+            }
+            if (replacement != null) {
+                builder.append(replacement, state);
+                i = Math.min(len, replaceEnd);
+            } else {
+                builder.append(spanned.subSequence(i, next), state);
+                i = next;
+            }
+        }
+        return builder.finish();
+    }
+
+    private static String spokenForm(TtsSpan span, String covered) {
+        String type = span.getType();
+        PersistableBundle args = span.getArgs();
+        if (type == null || args == null) return null;
+        switch (type) {
+            case TtsSpan.TYPE_TEXT:
+                return args.getString(TtsSpan.ARG_TEXT);
+            case TtsSpan.TYPE_CARDINAL:
+                return args.getString(TtsSpan.ARG_NUMBER);
+            case TtsSpan.TYPE_DIGITS: {
+                String digits = args.getString(TtsSpan.ARG_DIGITS);
+                return spellOut(digits != null ? digits : covered);
+            }
+            case TtsSpan.TYPE_VERBATIM: {
+                String verbatim = args.getString(TtsSpan.ARG_VERBATIM);
+                return spellOut(verbatim != null ? verbatim : covered);
+            }
+            case TtsSpan.TYPE_TELEPHONE: {
+                String parts = args.getString(TtsSpan.ARG_NUMBER_PARTS);
+                return parts != null ? spellOut(parts) : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    static List<Segment> parseSsml(String ssml) throws Exception {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(new StringReader(ssml));
+        Builder builder = new Builder();
+        ArrayList<State> stack = new ArrayList<>();
+        State state = new State();
+        int event = parser.getEventType();
+        while (event != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.START_TAG) {
+                String name = parser.getName();
+                stack.add(state);
+                state = state.copy();
+                String lang = attr(parser, "xml:lang");
+                if (lang == null) lang = attr(parser, "lang");
+                if (lang != null) {
+                    String mapped = langForLocale(Locale.forLanguageTag(lang));
+                    if (mapped != null) state.lang = mapped;
+                }
+                if ("break".equals(name)) {
+                    builder.addBreak(breakMs(attr(parser, "time"), attr(parser, "strength")));
+                } else if ("prosody".equals(name)) {
+                    state.rate *= parseRate(attr(parser, "rate"));
+                    state.pitch *= parsePitch(attr(parser, "pitch"));
+                } else if ("say-as".equals(name)) {
+                    state.sayAs = attr(parser, "interpret-as");
+                } else if ("sub".equals(name)) {
+                    String alias = attr(parser, "alias");
+                    if (alias != null) {
+                        builder.append(alias, state);
+                        state.skip = true;
+                    }
+                } else if ("desc".equals(name) || "mark".equals(name)) {
+                    state.skip = true;
+                }
+            } else if (event == XmlPullParser.END_TAG) {
+                String name = parser.getName();
+                if ("s".equals(name) || "p".equals(name)) builder.append(" ", state);
+                state = stack.isEmpty() ? new State() : stack.remove(stack.size() - 1);
+            } else if (event == XmlPullParser.TEXT && !state.skip) {
+                String text = parser.getText();
+                if (text != null) builder.append(sayAs(text, state.sayAs), state);
+            }
+            event = parser.next();
+        }
+        return builder.finish();
+    }
+
+    private static String attr(XmlPullParser parser, String name) {
+        String v = parser.getAttributeValue(null, name);
+        return v == null || v.trim().isEmpty() ? null : v.trim();
+    }
+
+    private static String sayAs(String text, String interpretAs) {
+        if (interpretAs == null) return text;
+        switch (interpretAs) {
+            case "characters":
+            case "spell-out":
+            case "verbatim":
+            case "digits":
+                return spellOut(text);
+            default:
+                return text;
+        }
+    }
+
+    private static String spellOut(String text) {
+        StringBuilder sb = new StringBuilder(text.length() * 2);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+                sb.append(c).append(' ');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    static int breakMs(String time, String strength) {
+        if (time != null) {
+            try {
+                String t = time.toLowerCase(Locale.US);
+                double ms;
+                if (t.endsWith("ms")) ms = Double.parseDouble(t.substring(0, t.length() - 2));
+                else if (t.endsWith("s")) ms = Double.parseDouble(t.substring(0, t.length() - 1)) * 1000;
+                else ms = Double.parseDouble(t);
+                return (int) Math.max(0, Math.min(MAX_BREAK_MS, ms));
+            } catch (NumberFormatException e) {}
+        }
+        if (strength == null) return 400;
+        switch (strength) {
+            case "none": return 0;
+            case "x-weak": return 100;
+            case "weak": return 250;
+            case "strong": return 700;
+            case "x-strong": return 1200;
+            default: return 400;
+        }
+    }
+
+    static float parseRate(String rate) {
+        if (rate == null) return 1.0f;
+        switch (rate) {
+            case "x-slow": return 0.5f;
+            case "slow": return 0.75f;
+            case "medium":
+            case "default": return 1.0f;
+            case "fast": return 1.25f;
+            case "x-fast": return 1.75f;
+        }
+        return clamp(parseRelative(rate, false), 0.25f, 4.0f);
+    }
+
+    static float parsePitch(String pitch) {
+        if (pitch == null) return 1.0f;
+        switch (pitch) {
+            case "x-low": return 0.7f;
+            case "low": return 0.85f;
+            case "medium":
+            case "default": return 1.0f;
+            case "high": return 1.15f;
+            case "x-high": return 1.3f;
+        }
+        return clamp(parseRelative(pitch, true), 0.5f, 2.0f);
+    }
+
+    private static float parseRelative(String value, boolean allowSemitones) {
+        try {
+            if (value.endsWith("%")) {
+                double v = Double.parseDouble(value.substring(0, value.length() - 1));
+                boolean signed = value.startsWith("+") || value.startsWith("-");
+                return (float) (signed ? 1.0 + v / 100.0 : v / 100.0);
+            }
+            if (allowSemitones && value.endsWith("st")) {
+                double st = Double.parseDouble(value.substring(0, value.length() - 2));
+                return (float) Math.pow(2.0, st / 12.0);
+            }
+            if (value.endsWith("Hz")) return 1.0f;
+            return (float) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 1.0f;
+        }
+    }
+
+    private static float clamp(float v, float min, float max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    public static String langForLocale(Locale locale) {
+        if (locale == null) return null;
+        String language = locale.getLanguage();
+        if ("shn".equals(language)) return "SHAN";
+        if ("my".equals(language) || "mya".equals(language) || "bur".equals(language)) return "MYANMAR";
+        if ("en".equals(language) || "eng".equals(language)) return "ENGLISH";
+        return null;
+    }
+
+    private static String decodeEntities(String text) {
+        return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,381 @@
+package com.cherry.sme.tts;
+
+import android.content.SharedPreferences;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class PcmPipeline {
+
+    public interface Sink {
+        void write(byte[] buffer, int offset, int length);
+    }
+
+    public static final String PREF_CAPTURE = "pref_capture_audio";
+    public static final String PREF_OUTPUT_RATE = "pref_output_sample_rate";
+    public static final String PREF_TARGET_RMS_DB = "pref_target_rms_db";
+    public static final String PREF_CROSSFADE_MS = "pref_crossfade_ms";
+    public static final int DEFAULT_OUTPUT_RATE = 24000;
+    public static final int DEFAULT_TARGET_RMS_DB = -20;
+    public static final int DEFAULT_CROSSFADE_MS = 8;
+    public static final String PREF_CHUNK_PAUSE_MS = "pref_chunk_pause_ms";
+    public static final int DEFAULT_CHUNK_PAUSE_MS = 80;
+
+    private static final int BLOCK_FRAMES = 1024;
+    private static final int MAX_RATE_RATIO = 8;
+    private static final int MAX_CHANNELS = 8;
+    private static final float MIN_GAIN = 0.1f;
+    private static final float MAX_GAIN = 8.0f;
+    private static final float GATE_LEVEL = 32768f * 0.003f;
+    private static final float RMS_SMOOTHING = 0.3f;
+
+    private final int outputRate;
+    private final int targetRmsDb;
+    private final int crossfadeMs;
+    private final float targetRms;
+    private final int crossfadeSamples;
+    private final int pauseMs;
+    private final int pauseSamples;
+    private final SilenceTrimmer trimmer;
+    private final SilenceTrimmer.Output trimmed = this::gainAndEmit;
+    private final TimeStretcher stretcher;
+    private final SilenceTrimmer.Output stretched = this::afterStretch;
+    private Sink sink;
+    private String trimKey = "";
+
+    private final short[] mono = new short[BLOCK_FRAMES];
+    private final short[] resampled = new short[BLOCK_FRAMES * MAX_RATE_RATIO + 2];
+    private final short[] stage;
+    private final short[] held;
+    private final byte[] out;
+    private final byte[] carry = new byte[MAX_CHANNELS * 2];
+    private final Map<String, float[]> langLevels = new HashMap<>();
+
+    private int heldLen;
+    private boolean segmentHead;
+    private int carryLen;
+    private int inChannels = 1;
+    private int blockFrames = BLOCK_FRAMES;
+    private double step = 1.0;
+    private double pos;
+    private int prevSample;
+    private float[] level;
+    private float gain = 1.0f;
+
+    private long samplesOut;
+    private int segments;
+    private float gainSumDb;
+    private long pausesInserted;
+    private int breakSamples = -1;
+    private long breaksInserted;
+    private long breakMs;
+
+    public PcmPipeline(int outputRate, int targetRmsDb, int crossfadeMs, int pauseMs, SilenceTrimmer trimmer) {
+        this.outputRate = outputRate;
+        this.targetRmsDb = targetRmsDb;
+        this.crossfadeMs = crossfadeMs;
+        this.pauseMs = pauseMs;
+        this.pauseSamples = outputRate * pauseMs / 1000;
+        this.trimmer = trimmer;
+        this.targetRms = (float) (32768.0 * Math.pow(10.0, targetRmsDb / 20.0));
+        this.crossfadeSamples = Math.max(0, outputRate * crossfadeMs / 1000);
+        this.held = new short[Math.max(1, crossfadeSamples)];
+        this.stage = new short[held.length + resampled.length];
+        this.out = new byte[stage.length * 2];
+        this.stretcher = new TimeStretcher(outputRate, resampled.length);
+    }
+
+    public static PcmPipeline fromPreferences(SharedPreferences prefs, PcmPipeline current) {
+        int rate = DEFAULT_OUTPUT_RATE;
+        int rmsDb = DEFAULT_TARGET_RMS_DB;
+        int fadeMs = DEFAULT_CROSSFADE_MS;
+        int pause = DEFAULT_CHUNK_PAUSE_MS;
+        int silenceDb = SilenceTrimmer.DEFAULT_THRESHOLD_DB;
+        int floorMs = SilenceTrimmer.DEFAULT_FLOOR_MS;
+        boolean trim = prefs.getBoolean(SilenceTrimmer.PREF_ENABLED, true);
+        try {
+            rate = Integer.parseInt(prefs.getString(PREF_OUTPUT_RATE, String.valueOf(DEFAULT_OUTPUT_RATE)));
+            rmsDb = Integer.parseInt(prefs.getString(PREF_TARGET_RMS_DB, String.valueOf(DEFAULT_TARGET_RMS_DB)));
+            fadeMs = Integer.parseInt(prefs.getString(PREF_CROSSFADE_MS, String.valueOf(DEFAULT_CROSSFADE_MS)));
+            pause = Integer.parseInt(prefs.getString(PREF_CHUNK_PAUSE_MS, String.valueOf(DEFAULT_CHUNK_PAUSE_MS)));
+            silenceDb = Integer.parseInt(prefs.getString(SilenceTrimmer.PREF_THRESHOLD_DB, String.valueOf(SilenceTrimmer.DEFAULT_THRESHOLD_DB)));
+            floorMs = Integer.parseInt(prefs.getString(SilenceTrimmer.PREF_FLOOR_MS, String.valueOf(SilenceTrimmer.DEFAULT_FLOOR_MS)));
+        } catch (Exception e) {}
+        if (rate < 8000 || rate > 48000) rate = DEFAULT_OUTPUT_RATE;
+        rmsDb = Math.max(-40, Math.min(-6, rmsDb));
+        fadeMs = Math.max(0, Math.min(50, fadeMs));
+        pause = Math.max(0, Math.min(1000, pause));
+        silenceDb = Math.max(-80, Math.min(-20, silenceDb));
+        floorMs = Math.max(0, Math.min(500, floorMs));
+        String trimKey = trim ? silenceDb + "/" + floorMs : "";
+        if (current != null && current.outputRate == rate && current.targetRmsDb == rmsDb
+                && current.crossfadeMs == fadeMs && current.pauseMs == pause && current.trimKey.equals(trimKey)) {
+            return current;
+        }
+        PcmPipeline pipeline = new PcmPipeline(rate, rmsDb, fadeMs, pause, trim ? new SilenceTrimmer(rate, silenceDb, floorMs) : null);
+        pipeline.trimKey = trimKey;
+        return pipeline;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public void setTempo(float tempo) {
+        stretcher.setTempo(tempo);
+    }
+
+    public void begin() {
+        heldLen = 0;
+        samplesOut = 0;
+        segments = 0;
+        gainSumDb = 0;
+        pausesInserted = 0;
+        breakSamples = -1;
+        breaksInserted = 0;
+        breakMs = 0;
+        if (trimmer != null) trimmer.reset();
+    }
+
+    public void startSegment(int sampleRate, int channels, String lang) {
+        inChannels = Math.max(1, Math.min(MAX_CHANNELS, channels));
+        step = (double) sampleRate / outputRate;
+        blockFrames = BLOCK_FRAMES;
+        if (step < 1.0) {
+            blockFrames = Math.max(1, Math.min(BLOCK_FRAMES, (int) ((resampled.length - 2) * step)));
+        }
+        pos = 0;
+        prevSample = 0;
+        carryLen = 0;
+        segmentHead = true;
+        level = langLevels.get(lang);
+        if (level == null) {
+            level = new float[]{0};
+            langLevels.put(lang, level);
+        }
+        gain = level[0] > 0 ? clampGain(targetRms / level[0]) : 1.0f;
+        if (trimmer != null) trimmer.startSegment();
+        stretcher.startSegment();
+        segments++;
+    }
+
+    public void insertBreak(int ms) {
+        breakSamples = Math.max(0, breakSamples) + outputRate * Math.max(0, ms) / 1000;
+        breakMs += Math.max(0, ms);
+    }
+
+    public void process(byte[] pcm, int offset, int length, Sink sink) {
+        this.sink = sink;
+        int frameBytes = inChannels * 2;
+        if (carryLen > 0) {
+            int need = frameBytes - carryLen;
+            int take = Math.min(need, length);
+            System.arraycopy(pcm, offset, carry, carryLen, take);
+            carryLen += take;
+            offset += take;
+            length -= take;
+            if (carryLen < frameBytes) return;
+            processFrames(carry, 0, 1);
+            carryLen = 0;
+        }
+        int frames = length / frameBytes;
+        int done = 0;
+        while (done < frames) {
+            int n = Math.min(blockFrames, frames - done);
+            processFrames(pcm, offset + done * frameBytes, n);
+            done += n;
+        }
+        int rest = length - frames * frameBytes;
+        if (rest > 0) {
+            System.arraycopy(pcm, offset + frames * frameBytes, carry, 0, rest);
+            carryLen = rest;
+        }
+    }
+
+    private void processFrames(byte[] pcm, int offset, int frames) {
+        int frameBytes = inChannels * 2;
+        for (int f = 0; f < frames; f++) {
+            int sum = 0;
+            int o = offset + f * frameBytes;
+            for (int ch = 0; ch < inChannels; ch++, o += 2) {
+                sum += (short) ((pcm[o] & 0xFF) | (pcm[o + 1] << 8));
+            }
+            mono[f] = (short) (sum / inChannels);
+        }
+        int n = resample(frames);
+        stretcher.process(resampled, 0, n, stretched);
+    }
+
+    private void afterStretch(short[] buf, int offset, int length) {
+        if (trimmer != null) {
+            trimmer.process(buf, offset, length, trimmed);
+        } else {
+            gainAndEmit(buf, offset, length);
+        }
+    }
+
+    private void gainAndEmit(short[] buf, int offset, int length) {
+        while (length > 0) {
+            int n = Math.min(length, resampled.length);
+            applyGain(buf, offset, n);
+            emit(buf, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private int resample(int frames) {
+        if (step == 1.0) {
+            System.arraycopy(mono, 0, resampled, 0, frames);
+            return frames;
+        }
+        int n = 0;
+        int prev = prevSample;
+        for (int f = 0; f < frames; f++) {
+            int s = mono[f];
+            while (pos < 1.0 && n < resampled.length) {
+                resampled[n++] = (short) (prev + (s - prev) * pos);
+                pos += step;
+            }
+            pos -= 1.0;
+            prev = s;
+        }
+        prevSample = prev;
+        return n;
+    }
+
+    private void applyGain(short[] buf, int offset, int n) {
+        double energy = 0;
+        int voiced = 0;
+        for (int i = offset; i < offset + n; i++) {
+            int s = buf[i];
+            if (s > GATE_LEVEL || s < -GATE_LEVEL) {
+                energy += (double) s * s;
+                voiced++;
+            }
+        }
+        float from = gain;
+        if (voiced > n / 8 && voiced > 0) {
+            float rms = (float) Math.sqrt(energy / voiced);
+            level[0] = level[0] <= 0 ? rms : level[0] + (rms - level[0]) * RMS_SMOOTHING;
+            gain = clampGain(targetRms / level[0]);
+        }
+        float delta = n > 0 ? (gain - from) / n : 0;
+        float g = from;
+        for (int i = offset; i < offset + n; i++) {
+            int v = (int) (buf[i] * g);
+            if (v > 32767) v = 32767;
+            else if (v < -32768) v = -32768;
+            buf[i] = (short) v;
+            g += delta;
+        }
+    }
+
+    private static float clampGain(float g) {
+        return Math.max(MIN_GAIN, Math.min(MAX_GAIN, g));
+    }
+
+    private void emit(short[] buf, int offset, int n) {
+        if (n <= 0) return;
+        int start = 0;
+        if (segmentHead) {
+            segmentHead = false;
+            boolean explicitBreak = breakSamples >= 0;
+            int gap = explicitBreak ? breakSamples : pauseSamples;
+            breakSamples = -1;
+            if (gap > 0 && (explicitBreak || heldLen > 0 || samplesOut > 0)) {
+                for (int i = 0; i < heldLen; i++) {
+                    held[i] = (short) (held[i] * (heldLen - i) / (float) (heldLen + 1));
+                }
+                write(held, heldLen);
+                heldLen = 0;
+                writeSilence(gap);
+                if (explicitBreak) breaksInserted++;
+                else pausesInserted++;
+                int fade = Math.min(crossfadeSamples, n);
+                for (int i = 0; i < fade; i++) {
+                    buf[offset + i] = (short) (buf[offset + i] * (i + 1) / (float) (fade + 1));
+                }
+            } else if (heldLen > 0 && crossfadeSamples > 0) {
+                int overlap = Math.min(heldLen, n);
+                int base = heldLen - overlap;
+                for (int i = 0; i < overlap; i++) {
+                    float t = (i + 1) / (float) (overlap + 1);
+                    held[base + i] = (short) (held[base + i] * (1 - t) + buf[offset + i] * t);
+                }
+                start = overlap;
+            }
+        }
+        int total = heldLen + n - start;
+        int keep = Math.min(crossfadeSamples, total);
+        System.arraycopy(held, 0, stage, 0, heldLen);
+        System.arraycopy(buf, offset + start, stage, heldLen, n - start);
+        write(stage, total - keep);
+        System.arraycopy(stage, total - keep, held, 0, keep);
+        heldLen = keep;
+    }
+
+    public void endSegment() {
+        carryLen = 0;
+        stretcher.flush(stretched);
+        if (trimmer != null) trimmer.endSegment(trimmed);
+        gainSumDb += (float) (20 * Math.log10(gain));
+    }
+
+    public void finish(Sink sink) {
+        this.sink = sink;
+        write(held, heldLen);
+        heldLen = 0;
+        if (breakSamples > 0) writeSilence(breakSamples);
+        breakSamples = -1;
+    }
+
+    private void writeSilence(int samples) {
+        Arrays.fill(out, (byte) 0);
+        while (samples > 0) {
+            int n = Math.min(samples, out.length / 2);
+            samplesOut += n;
+            sink.write(out, 0, n * 2);
+            samples -= n;
+        }
+    }
+
+    private void write(short[] buf, int n) {
+        if (n <= 0) return;
+        for (int i = 0, j = 0; i < n; i++) {
+            short s = buf[i];
+            out[j++] = (byte) s;
+            out[j++] = (byte) (s >> 8);
+        }
+        samplesOut += n;
+        sink.write(out, 0, n * 2);
+    }
+
+    public long getOutputDurationMs() {
+        return samplesOut * 1000L / outputRate;
+    }
+
+    public long getSilenceSavedMs() {
+        if (trimmer == null) return 0;
+        return trimmer.getTrimmedMs() - pausesInserted * pauseMs;
+    }
+
+    public String getSummary() {
+        String summary = String.format(Locale.US, "out=%dHz segments=%d audio=%dms avgGain=%.1fdB",
+                outputRate, segments, getOutputDurationMs(), segments > 0 ? gainSumDb / segments : 0f);
+        if (breaksInserted > 0) {
+            summary += String.format(Locale.US, " breaks=%d (%dms)", breaksInserted, breakMs);
+        }
+        if (stretcher.isActive()) {
+            summary += String.format(Locale.US, " tempo=%.2f", stretcher.getTempo());
+        }
+        if (trimmer != null) {
+            summary += String.format(Locale.US, " trimmed=%dms (lead %dms, tail %dms) pauses=%d saved=%dms",
+                    trimmer.getTrimmedMs(), trimmer.getLeadingTrimmedMs(), trimmer.getTrailingTrimmedMs(),
+                    pausesInserted, getSilenceSavedMs());
+        }
+        return summary;
+    }
+}
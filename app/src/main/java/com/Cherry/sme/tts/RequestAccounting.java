@@ -0,0 +1,169 @@
+package com.cherry.sme.tts;
+
+import android.os.Debug;
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+
+public class RequestAccounting {
+
+    public static final String PREF_ALLOC_COUNTING = "pref_alloc_accounting";
+
+    private static final String[] LANGS = {"SHAN", "MYANMAR", "ENGLISH", "MIXED"};
+    private static final int[] SIZE_BOUNDS = {32, 128, 512, 2048};
+    private static final String[] SIZE_NAMES = {"le32", "le128", "le512", "le2048", "gt2048"};
+
+    public static class Session {
+        final long startWall;
+        final long startCpu;
+        final int startAllocCount;
+        final int startAllocBytes;
+        final boolean allocs;
+        long waitNanos;
+        private long waitStart = -1;
+
+        // Debug alloc counters are deprecated without a replacement; the platform offers no
+        // other per-thread allocation count, and the pref keeps them off by default.
+        @SuppressWarnings("deprecation")
+        Session(boolean allocs) {
+            this.allocs = allocs;
+            this.startWall = SystemClock.elapsedRealtimeNanos();
+            this.startCpu = Debug.threadCpuTimeNanos();
+            this.startAllocCount = allocs ? Debug.getThreadAllocCount() : 0;
+            this.startAllocBytes = allocs ? Debug.getThreadAllocSize() : 0;
+        }
+
+        public void beginWait() {
+            if (waitStart < 0) waitStart = SystemClock.elapsedRealtimeNanos();
+        }
+
+        public void endWait() {
+            if (waitStart < 0) return;
+            waitNanos += SystemClock.elapsedRealtimeNanos() - waitStart;
+            waitStart = -1;
+        }
+    }
+
+    private static final class Totals {
+        long count;
+        long wallNanos;
+        long cpuNanos;
+        long waitNanos;
+        long allocCount;
+        long allocBytes;
+
+        void add(long wall, long cpu, long wait, long allocs, long bytes) {
+            count++;
+            wallNanos += wall;
+            cpuNanos += cpu;
+            waitNanos += wait;
+            allocCount += allocs;
+            allocBytes += bytes;
+        }
+
+        String describe(String name) {
+            if (count == 0) return name + ": -";
+            return String.format(Locale.US, "%s: n=%d wall=%.1fms own=%.1fms engine=%.1fms cpu=%.1fms allocs=%d (%dKB)",
+                    name, count, wallNanos / 1e6 / count, (wallNanos - waitNanos) / 1e6 / count,
+                    waitNanos / 1e6 / count, cpuNanos / 1e6 / count, allocCount / count, allocBytes / 1024 / count);
+        }
+
+        void dumpCompact(PrintWriter pw, String prefix) {
+            pw.println(prefix + ".count=" + count);
+            pw.println(prefix + ".wall_ms=" + wallNanos / 1000000);
+            pw.println(prefix + ".own_ms=" + (wallNanos - waitNanos) / 1000000);
+            pw.println(prefix + ".engine_wait_ms=" + waitNanos / 1000000);
+            pw.println(prefix + ".cpu_ms=" + cpuNanos / 1000000);
+            pw.println(prefix + ".alloc_count=" + allocCount);
+            pw.println(prefix + ".alloc_bytes=" + allocBytes);
+        }
+    }
+
+    private final Totals[] byLang = new Totals[LANGS.length];
+    private final Totals[] bySize = new Totals[SIZE_NAMES.length];
+    private final Totals all = new Totals();
+    private volatile boolean allocCounting;
+
+    public RequestAccounting() {
+        for (int i = 0; i < byLang.length; i++) byLang[i] = new Totals();
+        for (int i = 0; i < bySize.length; i++) bySize[i] = new Totals();
+    }
+
+    @SuppressWarnings("deprecation")
+    public void setAllocCounting(boolean enabled) {
+        if (enabled == allocCounting) return;
+        try {
+            if (enabled) Debug.startAllocCounting();
+            else Debug.stopAllocCounting();
+            allocCounting = enabled;
+        } catch (Throwable t) {
+            allocCounting = false;
+            LogCollector.addWarn("ACCOUNT", "Allocation counting unavailable: " + t.getMessage());
+        }
+    }
+
+    public Session begin() {
+        return new Session(allocCounting);
+    }
+
+    @SuppressWarnings("deprecation")
+    public String finish(Session session, int textLength, List<TTSUtils.Chunk> chunks) {
+        session.endWait();
+        long wall = SystemClock.elapsedRealtimeNanos() - session.startWall;
+        long cpu = Debug.threadCpuTimeNanos() - session.startCpu;
+        long allocs = 0;
+        long bytes = 0;
+        if (session.allocs && allocCounting) {
+            allocs = Math.max(0, Debug.getThreadAllocCount() - session.startAllocCount);
+            bytes = Math.max(0, Debug.getThreadAllocSize() - session.startAllocBytes);
+        }
+        int lang = langIndex(chunks);
+        int size = 0;
+        while (size < SIZE_BOUNDS.length && textLength > SIZE_BOUNDS[size]) size++;
+        synchronized (this) {
+            all.add(wall, cpu, session.waitNanos, allocs, bytes);
+            byLang[lang].add(wall, cpu, session.waitNanos, allocs, bytes);
+            bySize[size].add(wall, cpu, session.waitNanos, allocs, bytes);
+        }
+        return String.format(Locale.US, "cpu %.1fms, own %.1fms, engine %.1fms%s",
+                cpu / 1e6, (wall - session.waitNanos) / 1e6, session.waitNanos / 1e6,
+                session.allocs ? ", " + allocs + " allocs/" + bytes / 1024 + "KB" : "");
+    }
+
+    private static int langIndex(List<TTSUtils.Chunk> chunks) {
+        int found = -1;
+        if (chunks != null) {
+            for (TTSUtils.Chunk chunk : chunks) {
+                if (chunk == null || chunk.lang == null || chunk.breakMs >= 0) continue;
+                int i = 0;
+                while (i < 3 && !LANGS[i].equals(chunk.lang)) i++;
+                if (i == 3) continue;
+                if (found >= 0 && found != i) return 3;
+                found = i;
+            }
+        }
+        return found >= 0 ? found : 3;
+    }
+
+    public synchronized void dump(PrintWriter pw, String indent) {
+        pw.println(indent + all.describe("all") + (allocCounting ? "" : " (alloc counting off)"));
+        for (int i = 0; i < LANGS.length; i++) {
+            if (byLang[i].count > 0) pw.println(indent + byLang[i].describe(LANGS[i].toLowerCase(Locale.US)));
+        }
+        for (int i = 0; i < SIZE_NAMES.length; i++) {
+            if (bySize[i].count > 0) pw.println(indent + bySize[i].describe("chars " + SIZE_NAMES[i]));
+        }
+    }
+
+    public synchronized void dumpCompact(PrintWriter pw) {
+        all.dumpCompact(pw, "acct.all");
+        for (int i = 0; i < LANGS.length; i++) {
+            byLang[i].dumpCompact(pw, "acct.lang." + LANGS[i].toLowerCase(Locale.US));
+        }
+        for (int i = 0; i < SIZE_NAMES.length; i++) {
+            bySize[i].dumpCompact(pw, "acct.size." + SIZE_NAMES[i]);
+        }
+    }
+}
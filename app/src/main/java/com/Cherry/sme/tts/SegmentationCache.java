@@ -0,0 +1,147 @@
+package com.cherry.sme.tts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class SegmentationCache {
+
+    public static final int MAX_TEXT_LENGTH = 256;
+
+    private static final class Entry {
+        final String text;
+        final int generation;
+        final int modelKey;
+        final int[] bounds;
+        final String[] langs;
+        final int switchesSaved;
+
+        Entry(String text, int generation, int modelKey, int[] bounds, String[] langs, int switchesSaved) {
+            this.text = text;
+            this.generation = generation;
+            this.modelKey = modelKey;
+            this.bounds = bounds;
+            this.langs = langs;
+            this.switchesSaved = switchesSaved;
+        }
+    }
+
+    public static class Hit {
+        public final List<TTSUtils.Chunk> chunks;
+        public final int switchesSaved;
+
+        Hit(List<TTSUtils.Chunk> chunks, int switchesSaved) {
+            this.chunks = chunks;
+            this.switchesSaved = switchesSaved;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicInteger generation = new AtomicInteger(0);
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong stale = new AtomicLong(0);
+    private final AtomicLong stores = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong skipped = new AtomicLong(0);
+
+    public SegmentationCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public static boolean isCacheable(String text) {
+        return text != null && text.length() <= MAX_TEXT_LENGTH;
+    }
+
+    public int generation() {
+        return generation.get();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+
+    public Hit get(String text, int modelKey) {
+        if (!isCacheable(text)) return null;
+        int h = spread(text.hashCode());
+        int gen = generation.get();
+        for (int way = 0; way < 2; way++) {
+            Entry e = slots.get((h ^ way) & mask);
+            if (e == null || e.modelKey != modelKey || !e.text.equals(text)) continue;
+            if (e.generation != gen) {
+                stale.incrementAndGet();
+                break;
+            }
+            hits.incrementAndGet();
+            List<TTSUtils.Chunk> chunks = new ArrayList<>(e.langs.length);
+            for (int i = 0; i < e.langs.length; i++) {
+                chunks.add(new TTSUtils.Chunk(text.substring(e.bounds[2 * i], e.bounds[2 * i + 1]), e.langs[i]));
+            }
+            return new Hit(chunks, e.switchesSaved);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String text, int modelKey, int generation, List<TTSUtils.Chunk> chunks, int switchesSaved) {
+        if (!isCacheable(text) || generation != this.generation.get()) return;
+        int[] bounds = new int[chunks.size() * 2];
+        String[] langs = new String[chunks.size()];
+        int cursor = 0;
+        for (int i = 0; i < langs.length; i++) {
+            TTSUtils.Chunk c = chunks.get(i);
+            int at = text.indexOf(c.text, cursor);
+            if (at < 0) {
+                skipped.incrementAndGet();
+                return;
+            }
+            bounds[2 * i] = at;
+            bounds[2 * i + 1] = at + c.text.length();
+            langs[i] = c.lang;
+            cursor = at + c.text.length();
+        }
+        Entry entry = new Entry(text, generation, modelKey, bounds, langs, switchesSaved);
+        int h = spread(text.hashCode());
+        int first = h & mask;
+        int second = (h ^ 1) & mask;
+        Entry a = slots.get(first);
+        Entry b = slots.get(second);
+        int target;
+        if (a == null || a.generation != generation || a.text.equals(text)) {
+            target = first;
+        } else if (b == null || b.generation != generation || b.text.equals(text)) {
+            target = second;
+        } else {
+            slots.set(second, a);
+            target = first;
+            evictions.incrementAndGet();
+        }
+        slots.set(target, entry);
+        stores.incrementAndGet();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total > 0 ? (double) h / total : 0.0;
+    }
+
+    public String getSummary() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format(Locale.US, "segments: hit=%.1f%% (%d/%d) stale=%d stored=%d evicted=%d skipped=%d gen=%d slots=%d",
+                total > 0 ? h * 100.0 / total : 0.0, h, total, stale.get(), stores.get(), evictions.get(),
+                skipped.get(), generation.get(), slots.length());
+    }
+}
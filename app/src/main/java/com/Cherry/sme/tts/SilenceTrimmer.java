@@ -0,0 +1,122 @@
+package com.cherry.sme.tts;
+
+public class SilenceTrimmer {
+
+    public interface Output {
+        void accept(short[] buffer, int offset, int length);
+    }
+
+    public static final String PREF_ENABLED = "pref_trim_silence";
+    public static final String PREF_THRESHOLD_DB = "pref_silence_threshold_db";
+    public static final String PREF_FLOOR_MS = "pref_silence_floor_ms";
+    public static final int DEFAULT_THRESHOLD_DB = -45;
+    public static final int DEFAULT_FLOOR_MS = 40;
+    private static final int MAX_PENDING_MS = 1500;
+
+    private final int sampleRate;
+    private final int threshold;
+    private final short[] ring;
+    private final short[] pending;
+    private int ringStart;
+    private int ringLen;
+    private int pendingLen;
+    private boolean leading = true;
+    private long leadingTrimmed;
+    private long trailingTrimmed;
+
+    public SilenceTrimmer(int sampleRate, int thresholdDb, int floorMs) {
+        this.sampleRate = sampleRate;
+        this.threshold = Math.max(1, (int) (32768.0 * Math.pow(10.0, thresholdDb / 20.0)));
+        this.ring = new short[Math.max(1, sampleRate * floorMs / 1000)];
+        this.pending = new short[Math.max(ring.length, sampleRate * MAX_PENDING_MS / 1000)];
+    }
+
+    public void reset() {
+        leadingTrimmed = 0;
+        trailingTrimmed = 0;
+        startSegment();
+    }
+
+    public void startSegment() {
+        leading = true;
+        ringStart = 0;
+        ringLen = 0;
+        pendingLen = 0;
+    }
+
+    private boolean quiet(short s) {
+        return s < threshold && s > -threshold;
+    }
+
+    public void process(short[] in, int offset, int length, Output out) {
+        int i = offset;
+        int end = offset + length;
+        if (leading) {
+            while (i < end && quiet(in[i])) {
+                if (ringLen == ring.length) {
+                    ring[ringStart] = in[i];
+                    ringStart = (ringStart + 1) % ring.length;
+                    leadingTrimmed++;
+                } else {
+                    ring[(ringStart + ringLen) % ring.length] = in[i];
+                    ringLen++;
+                }
+                i++;
+            }
+            if (i == end) return;
+            leading = false;
+            int first = Math.min(ringLen, ring.length - ringStart);
+            if (first > 0) out.accept(ring, ringStart, first);
+            if (ringLen > first) out.accept(ring, 0, ringLen - first);
+            ringLen = 0;
+        }
+        int last = -1;
+        for (int j = end - 1; j >= i; j--) {
+            if (!quiet(in[j])) {
+                last = j;
+                break;
+            }
+        }
+        if (last >= 0) {
+            if (pendingLen > 0) {
+                out.accept(pending, 0, pendingLen);
+                pendingLen = 0;
+            }
+            out.accept(in, i, last + 1 - i);
+            i = last + 1;
+        }
+        while (i < end) {
+            if (pendingLen == pending.length) {
+                out.accept(pending, 0, pendingLen);
+                pendingLen = 0;
+            }
+            int n = Math.min(end - i, pending.length - pendingLen);
+            System.arraycopy(in, i, pending, pendingLen, n);
+            pendingLen += n;
+            i += n;
+        }
+    }
+
+    public void endSegment(Output out) {
+        if (leading) {
+            leadingTrimmed += ringLen;
+        } else {
+            int keep = Math.min(ring.length, pendingLen);
+            if (keep > 0) out.accept(pending, 0, keep);
+            trailingTrimmed += pendingLen - keep;
+        }
+        startSegment();
+    }
+
+    public long getLeadingTrimmedMs() {
+        return leadingTrimmed * 1000L / sampleRate;
+    }
+
+    public long getTrailingTrimmedMs() {
+        return trailingTrimmed * 1000L / sampleRate;
+    }
+
+    public long getTrimmedMs() {
+        return (leadingTrimmed + trailingTrimmed) * 1000L / sampleRate;
+    }
+}
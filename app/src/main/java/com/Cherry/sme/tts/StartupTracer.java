@@ -0,0 +1,190 @@
+package com.cherry.sme.tts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.speech.tts.TextToSpeech;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+public class StartupTracer {
+
+    private static final String PREFS_NAME = "startup_profiles";
+    private static final String KEY_PROFILES = "profiles";
+    private static final String PROFILE_SEPARATOR = "\n";
+    private static final int MAX_PROFILES = 10;
+    private static final long ENGINE_WINDOW_MS = 60000;
+    public static final String PREF_BUDGET_MS = "pref_startup_budget_ms";
+    public static final long DEFAULT_BUDGET_MS = 250;
+
+    private static final Object lock = new Object();
+    private static Context appContext;
+    private static long wallClockStart;
+    private static long startTime;
+    private static long processStartDelay = -1;
+    private static long totalMs = -1;
+    private static long budgetMs = DEFAULT_BUDGET_MS;
+    private static String currentPhase;
+    private static long currentPhaseStart;
+    private static final List<String> phaseNames = new ArrayList<>();
+    private static final List<Long> phaseDurations = new ArrayList<>();
+    private static final List<String> engineNames = new ArrayList<>();
+    private static final List<Long> engineTimes = new ArrayList<>();
+
+    public static void begin(Context context) {
+        synchronized (lock) {
+            appContext = context.getApplicationContext();
+            wallClockStart = System.currentTimeMillis();
+            startTime = SystemClock.elapsedRealtime();
+            processStartDelay = -1;
+            try {
+                if (android.os.Build.VERSION.SDK_INT >= 24) {
+                    processStartDelay = startTime - android.os.Process.getStartElapsedRealtime();
+                }
+            } catch (Exception e) {}
+            totalMs = -1;
+            currentPhase = null;
+            phaseNames.clear();
+            phaseDurations.clear();
+            engineNames.clear();
+            engineTimes.clear();
+        }
+    }
+
+    public static void beginPhase(String name) {
+        boolean ended;
+        synchronized (lock) {
+            ended = endPhaseLocked();
+            currentPhase = name;
+            currentPhaseStart = SystemClock.elapsedRealtime();
+        }
+        if (ended) Trace.endSection();
+        Trace.beginSection("TTS-Startup:" + name);
+    }
+
+    public static void endPhase() {
+        boolean ended;
+        synchronized (lock) {
+            ended = endPhaseLocked();
+        }
+        if (ended) Trace.endSection();
+    }
+
+    private static boolean endPhaseLocked() {
+        if (currentPhase == null) return false;
+        phaseNames.add(currentPhase);
+        phaseDurations.add(SystemClock.elapsedRealtime() - currentPhaseStart);
+        currentPhase = null;
+        return true;
+    }
+
+    public static void finish(long budget) {
+        endPhase();
+        long total;
+        synchronized (lock) {
+            if (appContext == null) return;
+            totalMs = SystemClock.elapsedRealtime() - startTime;
+            budgetMs = budget;
+            total = totalMs;
+            persistLocked();
+        }
+        if (total > budget) {
+            LogCollector.addWarn("STARTUP", "Cold start took " + total + "ms (budget " + budget + "ms)");
+        } else {
+            LogCollector.addLog("STARTUP", "Cold start took " + total + "ms (budget " + budget + "ms)");
+        }
+    }
+
+    public static void markEngineInit(String label, int status) {
+        synchronized (lock) {
+            if (appContext == null || totalMs < 0) return;
+            long sinceStart = SystemClock.elapsedRealtime() - startTime;
+            if (sinceStart > ENGINE_WINDOW_MS) return;
+            engineNames.add(label + (status == TextToSpeech.SUCCESS ? "" : "(failed)"));
+            engineTimes.add(sinceStart);
+            persistLocked();
+        }
+    }
+
+    private static void persistLocked() {
+        try {
+            SharedPreferences sp = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String existing = sp.getString(KEY_PROFILES, "");
+            String current = formatCurrentLocked();
+            String key = current.substring(0, current.indexOf('|'));
+            List<String> profiles = new ArrayList<>();
+            for (String p : existing.split(PROFILE_SEPARATOR)) {
+                if (!p.isEmpty() && !p.startsWith(key + "|")) profiles.add(p);
+            }
+            profiles.add(current);
+            while (profiles.size() > MAX_PROFILES) profiles.remove(0);
+            StringBuilder sb = new StringBuilder();
+            for (String p : profiles) {
+                if (sb.length() > 0) sb.append(PROFILE_SEPARATOR);
+                sb.append(p);
+            }
+            sp.edit().putString(KEY_PROFILES, sb.toString()).apply();
+        } catch (Exception e) {
+            LogCollector.addError("STARTUP", "Failed to persist startup profile", e);
+        }
+    }
+
+    private static String formatCurrentLocked() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(wallClockStart).append('|');
+        sb.append("total=").append(totalMs).append(",budget=").append(budgetMs);
+        if (processStartDelay >= 0) sb.append(",process=").append(processStartDelay);
+        sb.append('|');
+        for (int i = 0; i < phaseNames.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(phaseNames.get(i)).append('=').append(phaseDurations.get(i));
+        }
+        sb.append('|');
+        for (int i = 0; i < engineNames.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(engineNames.get(i)).append('=').append(engineTimes.get(i));
+        }
+        return sb.toString();
+    }
+
+    public static String getReport(Context context) {
+        String stored = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getString(KEY_PROFILES, "");
+        if (stored.isEmpty()) return "No startup profiles recorded yet.";
+        String[] profiles = stored.split(PROFILE_SEPARATOR);
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+        StringBuilder sb = new StringBuilder();
+        sb.append("========== Startup Profiles (last ").append(profiles.length).append(") ==========\n");
+        for (int i = profiles.length - 1; i >= 0; i--) {
+            String[] parts = profiles[i].split("\\|", -1);
+            if (parts.length < 4) continue;
+            try {
+                sb.append("\n[").append(fmt.format(new Date(Long.parseLong(parts[0])))).append("]\n");
+            } catch (NumberFormatException e) {
+                sb.append("\n[").append(parts[0]).append("]\n");
+            }
+            appendFields(sb, parts[1], "  ", "ms");
+            if (!parts[2].isEmpty()) {
+                sb.append("  Phases:\n");
+                appendFields(sb, parts[2], "    ", "ms");
+            }
+            if (!parts[3].isEmpty()) {
+                sb.append("  Engine onInit (since onCreate):\n");
+                appendFields(sb, parts[3], "    ", "ms");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendFields(StringBuilder sb, String fields, String indent, String unit) {
+        for (String field : fields.split(",")) {
+            int eq = field.indexOf('=');
+            if (eq < 0) continue;
+            sb.append(indent).append(field, 0, eq).append(": ").append(field.substring(eq + 1)).append(unit).append("\n");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.cherry.sme.tts;
+
+public class SyllableBreaker {
+
+    static final byte OTHER = 0;
+    static final byte CONSONANT = 1;
+    static final byte INDEPENDENT = 2;
+    static final byte DEPENDENT = 3;
+    static final byte MEDIAL = 4;
+    static final byte ASAT = 5;
+    static final byte VIRAMA = 6;
+    static final byte DIGIT = 7;
+    static final byte PUNCTUATION = 8;
+
+    private static final char MYANMAR_BASE = '\u1000';
+    private static final char EXTENDED_A_BASE = '\uAA60';
+    private static final char DOT_BELOW = '\u1037';
+    private static final byte[] MYANMAR = new byte[0xA0];
+    private static final byte[] EXTENDED_A = new byte[0x20];
+
+    static {
+        fill(MYANMAR, 0x1000, 0x1022, CONSONANT);
+        fill(MYANMAR, 0x1023, 0x102A, INDEPENDENT);
+        fill(MYANMAR, 0x102B, 0x1038, DEPENDENT);
+        fill(MYANMAR, 0x1039, 0x1039, VIRAMA);
+        fill(MYANMAR, 0x103A, 0x103A, ASAT);
+        fill(MYANMAR, 0x103B, 0x103E, MEDIAL);
+        fill(MYANMAR, 0x103F, 0x103F, CONSONANT);
+        fill(MYANMAR, 0x1040, 0x1049, DIGIT);
+        fill(MYANMAR, 0x104A, 0x104B, PUNCTUATION);
+        fill(MYANMAR, 0x104C, 0x104F, INDEPENDENT);
+        fill(MYANMAR, 0x1050, 0x1051, CONSONANT);
+        fill(MYANMAR, 0x1052, 0x1055, INDEPENDENT);
+        fill(MYANMAR, 0x1056, 0x1059, DEPENDENT);
+        fill(MYANMAR, 0x105A, 0x105D, CONSONANT);
+        fill(MYANMAR, 0x105E, 0x1060, MEDIAL);
+        fill(MYANMAR, 0x1061, 0x1061, CONSONANT);
+        fill(MYANMAR, 0x1062, 0x1064, DEPENDENT);
+        fill(MYANMAR, 0x1065, 0x1066, CONSONANT);
+        fill(MYANMAR, 0x1067, 0x106D, DEPENDENT);
+        fill(MYANMAR, 0x106E, 0x1070, CONSONANT);
+        fill(MYANMAR, 0x1071, 0x1074, DEPENDENT);
+        fill(MYANMAR, 0x1075, 0x1081, CONSONANT);
+        fill(MYANMAR, 0x1082, 0x1082, MEDIAL);
+        fill(MYANMAR, 0x1083, 0x108D, DEPENDENT);
+        fill(MYANMAR, 0x108E, 0x108E, CONSONANT);
+        fill(MYANMAR, 0x108F, 0x108F, DEPENDENT);
+        fill(MYANMAR, 0x1090, 0x1099, DIGIT);
+        fill(MYANMAR, 0x109A, 0x109D, DEPENDENT);
+        fill(MYANMAR, 0x109E, 0x109F, PUNCTUATION);
+        fill(EXTENDED_A, 0xAA60, 0xAA6F, CONSONANT);
+        fill(EXTENDED_A, 0xAA70, 0xAA70, DEPENDENT);
+        fill(EXTENDED_A, 0xAA71, 0xAA76, CONSONANT);
+        fill(EXTENDED_A, 0xAA77, 0xAA79, PUNCTUATION);
+        fill(EXTENDED_A, 0xAA7A, 0xAA7A, CONSONANT);
+        fill(EXTENDED_A, 0xAA7B, 0xAA7D, DEPENDENT);
+        fill(EXTENDED_A, 0xAA7E, 0xAA7F, CONSONANT);
+    }
+
+    private static void fill(byte[] table, int from, int to, byte cls) {
+        int base = table == MYANMAR ? MYANMAR_BASE : EXTENDED_A_BASE;
+        for (int c = from; c <= to; c++) table[c - base] = cls;
+    }
+
+    private CharSequence text;
+    private int start;
+    private int end;
+    private int current;
+
+    public void setText(CharSequence text) {
+        setText(text, 0, text.length());
+    }
+
+    public void setText(CharSequence text, int start, int end) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.current = start;
+    }
+
+    public int first() {
+        current = start;
+        return current;
+    }
+
+    public int next() {
+        if (current >= end) return -1;
+        current = following(text, current, end);
+        return current;
+    }
+
+    public int current() {
+        return current;
+    }
+
+    static byte classOf(char c) {
+        if (c >= MYANMAR_BASE && c < MYANMAR_BASE + 0xA0) return MYANMAR[c - MYANMAR_BASE];
+        if (c >= EXTENDED_A_BASE && c < EXTENDED_A_BASE + 0x20) return EXTENDED_A[c - EXTENDED_A_BASE];
+        return OTHER;
+    }
+
+    public static boolean isMyanmar(char c) {
+        return classOf(c) != OTHER;
+    }
+
+    public static boolean isBoundary(CharSequence text, int index) {
+        return isBoundary(text, index, text.length());
+    }
+
+    static boolean isBoundary(CharSequence text, int index, int end) {
+        if (index <= 0 || index >= end) return true;
+        char prev = text.charAt(index - 1);
+        char cur = text.charAt(index);
+        byte p = classOf(prev);
+        byte c = classOf(cur);
+        if (c == OTHER) {
+            if (p != OTHER) return true;
+            return !(Character.isLowSurrogate(cur) && Character.isHighSurrogate(prev))
+                    && !isCombining(cur) && cur != '\u200D' && prev != '\u200D';
+        }
+        if (p == VIRAMA) return false;
+        switch (c) {
+            case CONSONANT: {
+                int j = index + 1;
+                while (j < end && text.charAt(j) == DOT_BELOW) j++;
+                if (j < end) {
+                    byte n = classOf(text.charAt(j));
+                    if (n == ASAT || n == VIRAMA) return p == OTHER || p == DIGIT || p == PUNCTUATION;
+                }
+                return true;
+            }
+            case INDEPENDENT:
+            case PUNCTUATION:
+                return true;
+            case DIGIT:
+                return p != DIGIT;
+            default:
+                return p == OTHER || p == DIGIT || p == PUNCTUATION;
+        }
+    }
+
+    private static boolean isCombining(char c) {
+        if (c < '\u0300') return false;
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK || (c >= '\uFE00' && c <= '\uFE0F');
+    }
+
+    public static int following(CharSequence text, int offset) {
+        return following(text, offset, text.length());
+    }
+
+    static int following(CharSequence text, int offset, int end) {
+        int i = offset + 1;
+        while (i < end && !isBoundary(text, i, end)) i++;
+        return Math.min(i, end);
+    }
+
+    public static int preceding(CharSequence text, int offset) {
+        int i = Math.min(offset, text.length());
+        while (i > 0 && !isBoundary(text, i)) i--;
+        return i;
+    }
+
+    public static int count(CharSequence text, int start, int end) {
+        int n = 0;
+        int i = start;
+        while (i < end) {
+            if (isMyanmar(text.charAt(i))) n++;
+            i = following(text, i, end);
+        }
+        return n;
+    }
+}
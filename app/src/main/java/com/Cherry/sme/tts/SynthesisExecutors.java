@@ -0,0 +1,174 @@
+package com.cherry.sme.tts;
+
+import android.os.Process;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SynthesisExecutors {
+
+    public static final int REALTIME = 0;
+    public static final int PREFETCH = 1;
+    public static final int LIFECYCLE = 2;
+    public static final int IO = 3;
+    public static final int KEEP_ALIVE = 4;
+    public static final int JOBS = 5;
+
+    private static final String[] NAMES = {"Realtime", "Prefetch", "Lifecycle", "IO", "KeepAlive", "Jobs"};
+    private static final int[] PRIORITIES = {
+            Process.THREAD_PRIORITY_URGENT_AUDIO,
+            Process.THREAD_PRIORITY_DEFAULT + Process.THREAD_PRIORITY_LESS_FAVORABLE,
+            Process.THREAD_PRIORITY_DEFAULT,
+            Process.THREAD_PRIORITY_BACKGROUND,
+            Process.THREAD_PRIORITY_AUDIO,
+            Process.THREAD_PRIORITY_DEFAULT
+    };
+    private static final int[] CAPACITIES = {8, 4, 16, 32, 1, 2};
+
+    public static class Lane {
+        public final String name;
+        private final int priority;
+        private final int capacity;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong(0);
+        private final AtomicLong completed = new AtomicLong(0);
+        private final AtomicLong dropped = new AtomicLong(0);
+        private final AtomicLong queueWaitNanos = new AtomicLong(0);
+        private volatile int maxDepth;
+
+        Lane(String name, int priority, int capacity, boolean blockWhenFull) {
+            this.name = name;
+            this.priority = priority;
+            this.capacity = capacity;
+            RejectedExecutionHandler handler = blockWhenFull ? (r, ex) -> {
+                if (ex.isShutdown()) throw new RejectedExecutionException(name + " lane shut down");
+                try {
+                    ex.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException(name + " lane interrupted", e);
+                }
+            } : (r, ex) -> {
+                dropped.incrementAndGet();
+                throw new RejectedExecutionException(name + " lane full");
+            };
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity), r -> {
+                        Thread t = new Thread(() -> {
+                            Process.setThreadPriority(priority);
+                            r.run();
+                        }, "TTS-" + name);
+                        t.setDaemon(true);
+                        return t;
+                    }, handler);
+        }
+
+        public boolean execute(Runnable task) {
+            final long queued = System.nanoTime();
+            submitted.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    queueWaitNanos.addAndGet(System.nanoTime() - queued);
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        LogCollector.addError("EXECUTOR", name + " task failed", t);
+                    } finally {
+                        completed.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (!executor.isShutdown()) {
+                    LogCollector.addWarn("EXECUTOR", name + " lane full (" + capacity + "), task dropped");
+                }
+                return false;
+            }
+            int depth = executor.getQueue().size();
+            if (depth > maxDepth) maxDepth = depth;
+            return true;
+        }
+
+        public Future<?> submit(Runnable task) {
+            FutureTask<Void> future = new FutureTask<>(task, null);
+            if (!execute(future)) future.cancel(false);
+            return future;
+        }
+
+        public int getDepth() {
+            return executor.getQueue().size() + executor.getActiveCount();
+        }
+
+        public String getSummary() {
+            long done = completed.get();
+            return String.format(Locale.US, "%s(prio %d): depth=%d/%d max=%d submitted=%d done=%d dropped=%d avgWait=%.2fms",
+                    name, priority, getDepth(), capacity, maxDepth, submitted.get(), done, dropped.get(),
+                    done > 0 ? queueWaitNanos.get() / 1e6 / done : 0.0);
+        }
+
+        void shutdown(long waitMs) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final Lane[] lanes = new Lane[NAMES.length];
+    private final ScheduledThreadPoolExecutor timer;
+
+    public SynthesisExecutors() {
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(NAMES[i], PRIORITIES[i], CAPACITIES[i], i == REALTIME);
+        }
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "TTS-Timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public Lane lane(int lane) {
+        return lanes[lane];
+    }
+
+    public boolean execute(int lane, Runnable task) {
+        return lanes[lane].execute(task);
+    }
+
+    public ScheduledFuture<?> schedule(int lane, Runnable task, long delayMs) {
+        final Lane target = lanes[lane];
+        return timer.schedule(() -> target.execute(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public int[] getDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) depths[i] = lanes[i].getDepth();
+        return depths;
+    }
+
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Lane lane : lanes) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(lane.getSummary());
+        }
+        return sb.toString();
+    }
+
+    public void shutdown(long waitMs) {
+        timer.shutdownNow();
+        for (int i = lanes.length - 1; i >= 0; i--) lanes[i].shutdown(waitMs);
+    }
+}
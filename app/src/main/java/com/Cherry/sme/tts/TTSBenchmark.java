@@ -0,0 +1,216 @@
+package com.cherry.sme.tts;
+
+import android.icu.text.BreakIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class TTSBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 2000;
+    private static volatile long blackhole;
+
+    private static final String[] UNICODE_SAMPLES = {
+            "\u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B",
+            "\u1000\u103B\u1031\u1038\u1007\u1030\u1038\u1015\u103C\u102F\u1015\u103C\u102E\u1038",
+            "\u1019\u103C\u1014\u103A\u1019\u102C",
+            "\u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B\u104A Cherry SME TTS \u1021\u1006\u1004\u103A\u101E\u1004\u103A\u1037 \u1016\u103C\u1005\u103A\u1014\u1031\u1015\u102B\u1015\u103C\u102E\u104B"
+    };
+
+    private static final String[] SHAN_SAMPLES = {
+            "\u1019\u1082\u103A\u1087\u101E\u102F\u1004\u103A\u1076\u1083\u1088",
+            "\u1019\u107C\u103A\u1038 \u1010\u1084\u1089",
+            "\u1019\u1082\u103A\u1087\u101E\u102F\u1004\u103A\u1076\u1083\u1088\u104A \u1019\u1004\u103A\u1039\u1002\u101C\u102C\u1015\u102B\u104A",
+            "\u101C\u1085\u1004\u103A",
+            "\u1019\u1085\u1004\u103A\u1038",
+            "\u101E\u1085\u1004\u103A",
+            "\u1010\u1085\u1004\u103A\u1087"
+    };
+
+    private static final String[] ZAWGYI_SAMPLES = {
+            "\u1019\u1002\u1064\u101C\u102C\u1015\u102B",
+            "\u1031\u1000\u103A\u1038\u1007\u1030\u1038\u103B\u1015\u1033\u1081\u1015\u102E\u1038",
+            "\u103B\u1019\u1014\u1039\u1019\u102C",
+            "\u1019\u1002\u1064\u101C\u102C\u1015\u102B\u104A Cherry SME TTS \u1021\u1006\u1004\u1039\u101E\u1004\u1037\u1039 \u103B\u1016\u1005\u1039\u1031\u1014\u1015\u102B\u107F\u1015\u102E\u104B"
+    };
+
+    private static final String[] ENGLISH_SAMPLES = {
+            "Settings",
+            "Double tap to activate",
+            "This is a sample text."
+    };
+
+    public static void runAllAsync() {
+        new Thread(() -> {
+            try {
+                LogCollector.addLog("BENCH", runZawgyiBenchmark());
+                LogCollector.addLog("BENCH", runStretchBenchmark());
+                LogCollector.addLog("BENCH", runSyllableBenchmark());
+            } catch (Exception e) {
+                LogCollector.addError("BENCH", "Benchmark failed", e);
+            }
+        }, "TTS-Benchmark").start();
+    }
+
+    public static String runZawgyiBenchmark() {
+        List<String> corpus = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        addAll(corpus, expected, UNICODE_SAMPLES, false);
+        addAll(corpus, expected, SHAN_SAMPLES, false);
+        addAll(corpus, expected, ZAWGYI_SAMPLES, true);
+        addAll(corpus, expected, ENGLISH_SAMPLES, false);
+
+        long corpusChars = 0;
+        int correct = 0;
+        int falsePositives = 0;
+        int falseNegatives = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            String s = corpus.get(i);
+            corpusChars += s.length();
+            boolean detected = ZawgyiConverter.isZawgyi(s);
+            if (detected == expected.get(i)) correct++;
+            else if (detected) falsePositives++;
+            else falseNegatives++;
+        }
+
+        double sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (String s : corpus) sink += ZawgyiConverter.zawgyiProbability(s);
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < MEASURE_ROUNDS; r++) {
+            for (String s : corpus) sink += ZawgyiConverter.zawgyiProbability(s);
+        }
+        long detectNs = System.nanoTime() - start;
+
+        long zawgyiChars = 0;
+        for (String s : ZAWGYI_SAMPLES) zawgyiChars += s.length();
+        int outLen = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (String s : ZAWGYI_SAMPLES) outLen += ZawgyiConverter.toUnicode(s).length();
+        }
+        start = System.nanoTime();
+        for (int r = 0; r < MEASURE_ROUNDS; r++) {
+            for (String s : ZAWGYI_SAMPLES) outLen += ZawgyiConverter.toUnicode(s).length();
+        }
+        long convertNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < MEASURE_ROUNDS; r++) {
+            for (String s : corpus) outLen += ZawgyiConverter.normalize(s).length();
+        }
+        long normalizeNs = System.nanoTime() - start;
+        blackhole = (long) sink + outLen;
+
+        return String.format(Locale.US,
+                "Zawgyi: accuracy %d/%d (fp=%d fn=%d) | detect %.1f ns/char | convert %.1f ns/char | cached normalize %.1f ns/string",
+                correct, corpus.size(), falsePositives, falseNegatives,
+                (double) detectNs / (corpusChars * (long) MEASURE_ROUNDS),
+                (double) convertNs / (zawgyiChars * (long) MEASURE_ROUNDS),
+                (double) normalizeNs / ((long) corpus.size() * MEASURE_ROUNDS));
+    }
+
+    public static String runStretchBenchmark() {
+        int rate = PcmPipeline.DEFAULT_OUTPUT_RATE;
+        short[] signal = new short[rate * 10];
+        for (int i = 0; i < signal.length; i++) {
+            double t = (double) i / rate;
+            double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 3 * t);
+            double f0 = 120 + 30 * Math.sin(2 * Math.PI * 0.5 * t);
+            signal[i] = (short) (6000 * envelope * (Math.sin(2 * Math.PI * f0 * t)
+                    + 0.5 * Math.sin(4 * Math.PI * f0 * t) + 0.25 * Math.sin(6 * Math.PI * f0 * t)));
+        }
+        int block = 1024;
+        TimeStretcher stretcher = new TimeStretcher(rate, block);
+        final long[] produced = new long[1];
+        SilenceTrimmer.Output out = (buf, off, len) -> produced[0] += len + buf[off];
+        StringBuilder sb = new StringBuilder("Stretch (WSOLA, 10s @ " + rate + "Hz):");
+        float[] tempos = {1.5f, 2.0f, 3.0f};
+        for (float tempo : tempos) {
+            stretcher.setTempo(tempo);
+            for (int r = 0; r < 3; r++) runStretch(stretcher, signal, block, out);
+            long start = System.nanoTime();
+            int rounds = 5;
+            for (int r = 0; r < rounds; r++) runStretch(stretcher, signal, block, out);
+            long ns = (System.nanoTime() - start) / rounds;
+            double audioSec = (double) signal.length / rate;
+            sb.append(String.format(Locale.US, " x%.1f %.1fms (%.0fx realtime)", tempo, ns / 1e6, audioSec * 1e9 / ns));
+        }
+        blackhole = produced[0];
+        return sb.toString();
+    }
+
+    public static String runSyllableBenchmark() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 8000) {
+            for (String u : UNICODE_SAMPLES) sb.append(u).append(' ');
+            for (String u : SHAN_SAMPLES) sb.append(u).append(' ');
+        }
+        String text = sb.toString();
+        int len = text.length();
+        int rounds = MEASURE_ROUNDS / 20;
+        long sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS / 4; r++) sink += countSyllables(text);
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) sink += countSyllables(text);
+        long syllableNs = System.nanoTime() - start;
+
+        BreakIterator graphemes = BreakIterator.getCharacterInstance(new Locale("my"));
+        BreakIterator words = BreakIterator.getWordInstance(new Locale("my"));
+        for (int r = 0; r < WARMUP_ROUNDS / 4; r++) {
+            sink += countIcu(graphemes, text);
+            sink += countIcu(words, text);
+        }
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) sink += countIcu(graphemes, text);
+        long graphemeNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) sink += countIcu(words, text);
+        long wordNs = System.nanoTime() - start;
+
+        boolean[] graphemeBoundary = new boolean[len + 1];
+        graphemes.setText(text);
+        for (int b = graphemes.first(); b != BreakIterator.DONE; b = graphemes.next()) graphemeBoundary[b] = true;
+        int unsafe = 0;
+        for (int b = 0; b < len; b = SyllableBreaker.following(text, b)) {
+            if (!graphemeBoundary[b]) unsafe++;
+        }
+        blackhole = sink;
+        double chars = (double) len * rounds;
+        return String.format(Locale.US,
+                "Syllables: %.1f ns/char (%d syllables in %d chars, %d inside a grapheme) | ICU grapheme %.1f ns/char | ICU word %.1f ns/char",
+                syllableNs / chars, SyllableBreaker.count(text, 0, len), len, unsafe,
+                graphemeNs / chars, wordNs / chars);
+    }
+
+    private static int countSyllables(String text) {
+        int n = 0;
+        int len = text.length();
+        for (int b = 0; b < len; b = SyllableBreaker.following(text, b)) n++;
+        return n;
+    }
+
+    private static int countIcu(BreakIterator it, String text) {
+        int n = 0;
+        it.setText(text);
+        for (int b = it.first(); b != BreakIterator.DONE; b = it.next()) n++;
+        return n;
+    }
+
+    private static void runStretch(TimeStretcher stretcher, short[] signal, int block, SilenceTrimmer.Output out) {
+        stretcher.startSegment();
+        for (int off = 0; off < signal.length; off += block) {
+            stretcher.process(signal, off, Math.min(block, signal.length - off), out);
+        }
+        stretcher.flush(out);
+    }
+
+    private static void addAll(List<String> corpus, List<Boolean> expected, String[] samples, boolean zawgyi) {
+        for (String s : samples) {
+            corpus.add(s);
+            expected.add(zawgyi);
+        }
+    }
+}
@@ -17,10 +17,14 @@ public class TTSUtils {
     private static final Pattern TOKEN_PATTERN = Pattern.compile("([\\u1000-\\u109F\\uAA60-\\uAA7F]+)|([^\\u1000-\\u109F\\uAA60-\\uAA7F\\s]+)|(\\s+)");
     
     private static final Map<String, String> wordMapping = new ConcurrentHashMap<>();
+    private static final SegmentationCache segmentationCache = new SegmentationCache(512);
 
     public static class Chunk {
         public String text;
         public String lang;
+        public int breakMs = -1;
+        public float rate = 1.0f;
+        public float pitch = 1.0f;
 
         public Chunk(String text, String lang) {
             this.text = text;
@@ -29,28 +33,77 @@ public class TTSUtils {
     }
 
     public static void loadMapping(Context context) {
-        new Thread(() -> {
-            try {
-                wordMapping.clear();
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(context.getAssets().open("mapping.txt")));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = line.trim();
-                    if (line.isEmpty()) continue;
-
-                    String[] parts = line.split("=");
-                    if (parts.length == 2) {
-                        wordMapping.put(parts[0].trim(), parts[1].trim());
-                    } else {
-                        wordMapping.put(line, "SHAN");
-                    }
+        try {
+            wordMapping.clear();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(context.getAssets().open("mapping.txt")));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                String[] parts = line.split("=");
+                if (parts.length == 2) {
+                    wordMapping.put(parts[0].trim(), parts[1].trim());
+                } else {
+                    wordMapping.put(line, "SHAN");
+                }
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        segmentationCache.invalidate();
+    }
+
+    public static int findCutPoint(CharSequence text, int start, int end, int floor) {
+        for (int j = end - 1; j >= start && j > floor; j--) {
+            char c = text.charAt(j);
+            if (c == ' ' || c == '\n' || c == '\u104A' || c == '\u104B' || c == '.' || c == ',') {
+                return j + 1;
+            }
+        }
+        int safe = SyllableBreaker.preceding(text, end);
+        return safe > start ? safe : end;
+    }
+
+    public static SegmentationCache getSegmentationCache() {
+        return segmentationCache;
+    }
+
+    public static List<String> predictLanguages(CharSequence text, int limit) {
+        List<String> langs = new ArrayList<>(3);
+        if (text == null) return langs;
+        int end = Math.min(text.length(), limit);
+        int i = 0;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (isMyanmarBlock(c)) {
+                int start = i;
+                boolean shan = false;
+                while (i < end && isMyanmarBlock(text.charAt(i))) {
+                    if (isShanChar(text.charAt(i))) shan = true;
+                    i++;
                 }
-                reader.close();
-            } catch (Exception e) {
-                e.printStackTrace();
+                String mapped = wordMapping.get(text.subSequence(start, i).toString());
+                String lang = mapped != null ? mapped : (shan ? "SHAN" : "MYANMAR");
+                if (!langs.contains(lang)) langs.add(lang);
+            } else {
+                if (Character.isLetter(c) && !langs.contains("ENGLISH")) langs.add("ENGLISH");
+                i++;
             }
-        }).start();
+        }
+        return langs;
+    }
+
+    private static boolean isMyanmarBlock(char c) {
+        return (c >= '\u1000' && c <= '\u109F') || (c >= '\uAA60' && c <= '\uAA7F');
+    }
+
+    private static boolean isShanChar(char c) {
+        return c == '\u1022' || c == '\u1035' || c == '\u1062' || c == '\u1064'
+                || (c >= '\u1067' && c <= '\u106D') || (c >= '\u1075' && c <= '\u109F')
+                || (c >= '\uAA60' && c <= '\uAA7F');
     }
 
     public static List<Chunk> splitHelper(String text) {
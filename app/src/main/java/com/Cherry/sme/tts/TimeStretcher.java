@@ -0,0 +1,166 @@
+package com.cherry.sme.tts;
+
+public class TimeStretcher {
+
+    public static final String PREF_ENABLED = "pref_inprocess_rate";
+    public static final float MIN_TEMPO = 0.5f;
+    public static final float MAX_TEMPO = 4.0f;
+    private static final int SEQUENCE_MS = 40;
+    private static final int SEEK_MS = 15;
+    private static final int OVERLAP_MS = 8;
+
+    private final int sequenceLength;
+    private final int seekLength;
+    private final int overlapLength;
+    private final int maxInput;
+    private final short[] input;
+    private final short[] output;
+    private final short[] midBuffer;
+    private final float[] refBuffer;
+
+    private float tempo = 1.0f;
+    private int inputLen;
+    private boolean haveMid;
+    private double skipFract;
+    private long samplesIn;
+    private long samplesOut;
+
+    public TimeStretcher(int sampleRate, int maxBlock) {
+        this.sequenceLength = sampleRate * SEQUENCE_MS / 1000;
+        this.seekLength = sampleRate * SEEK_MS / 1000;
+        this.overlapLength = Math.max(8, sampleRate * OVERLAP_MS / 1000);
+        int maxSkip = (int) Math.ceil(MAX_TEMPO * (sequenceLength - overlapLength)) + 1;
+        this.maxInput = Math.max(maxSkip + overlapLength, sequenceLength) + seekLength;
+        this.input = new short[maxInput + maxBlock];
+        this.output = new short[sequenceLength];
+        this.midBuffer = new short[overlapLength];
+        this.refBuffer = new float[overlapLength];
+    }
+
+    public void setTempo(float tempo) {
+        this.tempo = Math.max(MIN_TEMPO, Math.min(MAX_TEMPO, tempo));
+    }
+
+    public float getTempo() {
+        return tempo;
+    }
+
+    public boolean isActive() {
+        return tempo < 0.99f || tempo > 1.01f;
+    }
+
+    public void startSegment() {
+        inputLen = 0;
+        haveMid = false;
+        skipFract = 0;
+    }
+
+    public void process(short[] in, int offset, int length, SilenceTrimmer.Output out) {
+        if (!isActive()) {
+            out.accept(in, offset, length);
+            return;
+        }
+        samplesIn += length;
+        while (length > 0) {
+            int n = Math.min(length, input.length - inputLen);
+            System.arraycopy(in, offset, input, inputLen, n);
+            inputLen += n;
+            offset += n;
+            length -= n;
+            drain(out);
+        }
+    }
+
+    private void drain(SilenceTrimmer.Output out) {
+        int bodyLength = sequenceLength - overlapLength;
+        int pos = 0;
+        while (inputLen - pos >= maxInput) {
+            int best = haveMid ? pos + seekBestOverlap(pos) : pos;
+            int n = 0;
+            if (haveMid) {
+                for (int i = 0; i < overlapLength; i++) {
+                    int a = midBuffer[i] * (overlapLength - i);
+                    int b = input[best + i] * i;
+                    output[n++] = (short) ((a + b) / overlapLength);
+                }
+            } else {
+                System.arraycopy(input, best, output, 0, overlapLength);
+                n = overlapLength;
+            }
+            int body = bodyLength - overlapLength;
+            System.arraycopy(input, best + overlapLength, output, n, body);
+            n += body;
+            out.accept(output, 0, n);
+            samplesOut += n;
+            System.arraycopy(input, best + bodyLength, midBuffer, 0, overlapLength);
+            haveMid = true;
+            skipFract += tempo * bodyLength;
+            int skip = (int) skipFract;
+            skipFract -= skip;
+            pos += skip;
+        }
+        if (pos > 0) {
+            inputLen -= pos;
+            System.arraycopy(input, pos, input, 0, inputLen);
+        }
+    }
+
+    private int seekBestOverlap(int pos) {
+        for (int i = 0; i < overlapLength; i++) {
+            refBuffer[i] = midBuffer[i] * (float) (i * (overlapLength - i));
+        }
+        double bestCorr = -Double.MAX_VALUE;
+        int bestOffset = 0;
+        for (int offset = 0; offset < seekLength; offset++) {
+            int base = pos + offset;
+            double corr = 0;
+            double norm = 0;
+            for (int i = 0; i < overlapLength; i++) {
+                int s = input[base + i];
+                corr += s * refBuffer[i];
+                norm += (double) s * s;
+            }
+            corr = corr / Math.sqrt(norm < 1e-9 ? 1.0 : norm);
+            corr += (seekLength - offset) * 1e-6 * Math.abs(corr);
+            if (corr > bestCorr) {
+                bestCorr = corr;
+                bestOffset = offset;
+            }
+        }
+        return bestOffset;
+    }
+
+    public void flush(SilenceTrimmer.Output out) {
+        if (!isActive()) return;
+        int n = 0;
+        if (haveMid) {
+            int len = Math.min(overlapLength, inputLen);
+            for (int i = 0; i < overlapLength; i++) {
+                int b = i < len ? input[i] : 0;
+                output[n++] = (short) ((midBuffer[i] * (overlapLength - i) + b * i) / overlapLength);
+            }
+            out.accept(output, 0, n);
+            samplesOut += n;
+        }
+        double pos = haveMid ? overlapLength : 0;
+        while (pos < inputLen) {
+            n = 0;
+            while (n < output.length && pos < inputLen) {
+                output[n++] = input[(int) pos];
+                pos += tempo;
+            }
+            out.accept(output, 0, n);
+            samplesOut += n;
+        }
+        inputLen = 0;
+        haveMid = false;
+    }
+
+    public long getSamplesIn() {
+        return samplesIn;
+    }
+
+    public long getSamplesOut() {
+        return samplesOut;
+    }
+}
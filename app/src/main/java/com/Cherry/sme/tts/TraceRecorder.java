@@ -0,0 +1,293 @@
+package com.cherry.sme.tts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class TraceRecorder {
+
+    public static final String PREF_ENABLED = "pref_trace_enabled";
+    public static final String PREF_PRIVACY = "pref_trace_privacy";
+    public static final String TRACE_DIR = "traces";
+    public static final int MAGIC = 0x54524345;
+    public static final int VERSION = 1;
+
+    public static final int EVENT_REQUEST = 1;
+    public static final int EVENT_CHUNK = 2;
+    public static final int EVENT_STOP = 3;
+    public static final int EVENT_END = 4;
+
+    public static final int FLAG_PRIVACY = 1;
+    public static final int FLAG_TEXT_HASHED = 1;
+
+    public static final int NOT_READY = 5;
+    public static final int REJECTED = 6;
+
+    private static final long MAX_FILE_BYTES = 4L * 1024 * 1024;
+    private static final int MAX_FILES = 4;
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    private static final int FLUSH_BYTES = 16 * 1024;
+    private static final String[] LANGS = {"SHAN", "MYANMAR", "ENGLISH"};
+
+    private final File dir;
+    private final boolean privacy;
+    private final SynthesisExecutors.Lane io;
+    private static final class Block {
+        final File newFile;
+        final byte[] data;
+
+        Block(File newFile, byte[] data) {
+            this.newFile = newFile;
+            this.data = data;
+        }
+    }
+
+    private final Object fileLock = new Object();
+    private final ConcurrentLinkedQueue<Block> blocks = new ConcurrentLinkedQueue<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(FLUSH_BYTES);
+    private DataOutputStream out;
+    private File current;
+    private File pendingFile;
+    private FileOutputStream file;
+    private volatile boolean failed;
+    private long written;
+    private long baseTime;
+    private long lastFlush;
+    private long sequence;
+    private long events;
+    private long bytesTotal;
+
+    private TraceRecorder(File dir, boolean privacy, SynthesisExecutors.Lane io) {
+        this.dir = dir;
+        this.privacy = privacy;
+        this.io = io;
+    }
+
+    public static TraceRecorder open(Context context, SharedPreferences prefs, SynthesisExecutors.Lane io) {
+        if (!prefs.getBoolean(PREF_ENABLED, false)) return null;
+        TraceRecorder recorder = new TraceRecorder(new File(context.getFilesDir(), TRACE_DIR),
+                prefs.getBoolean(PREF_PRIVACY, true), io);
+        try {
+            synchronized (recorder) {
+                recorder.rotate();
+                recorder.openPendingFile();
+            }
+            return recorder;
+        } catch (IOException e) {
+            LogCollector.addError("TRACE", "Cannot open trace file", e);
+            return null;
+        }
+    }
+
+    public static File[] listTraces(Context context) {
+        File[] files = new File(context.getFilesDir(), TRACE_DIR).listFiles((d, name) -> name.endsWith(".trace"));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        return files;
+    }
+
+    private void rotate() throws IOException {
+        bytesTotal += written;
+        long wall = System.currentTimeMillis();
+        current = new File(dir, String.format(Locale.US, "%013d.trace", wall));
+        pendingFile = current;
+        pending.reset();
+        out = new DataOutputStream(pending);
+        baseTime = SystemClock.elapsedRealtime();
+        lastFlush = baseTime;
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(wall);
+        out.writeInt(privacy ? FLAG_PRIVACY : 0);
+        written = 20;
+    }
+
+    public synchronized long recordRequest(String text, int callerUid, int rate, int pitch) {
+        if (out == null || failed) return -1;
+        long seq = ++sequence;
+        try {
+            beginEvent(EVENT_REQUEST);
+            writeVarLong(seq);
+            writeVarLong(zigzag(callerUid));
+            writeVarLong(rate);
+            writeVarLong(pitch);
+            writeVarLong(text.length());
+            if (privacy) {
+                out.writeByte(FLAG_TEXT_HASHED);
+                out.writeLong(hash(text));
+                written += 9;
+            } else {
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(0);
+                writeVarLong(utf8.length);
+                out.write(utf8);
+                written += 1 + utf8.length;
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+        return seq;
+    }
+
+    public synchronized void recordChunk(long seq, String lang, int length, long waitMs, long speakMs, int outcome) {
+        if (out == null || failed || seq < 0) return;
+        try {
+            beginEvent(EVENT_CHUNK);
+            writeVarLong(seq);
+            out.writeByte(langCode(lang));
+            out.writeByte(outcome);
+            written += 2;
+            writeVarLong(length);
+            writeVarLong(Math.max(0, waitMs));
+            writeVarLong(Math.max(0, speakMs));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void recordStop() {
+        if (out == null || failed) return;
+        try {
+            beginEvent(EVENT_STOP);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public synchronized void recordEnd(long seq, long totalMs) {
+        if (out == null || failed || seq < 0) return;
+        try {
+            beginEvent(EVENT_END);
+            writeVarLong(seq);
+            writeVarLong(Math.max(0, totalMs));
+            long now = SystemClock.elapsedRealtime();
+            if (now - lastFlush >= FLUSH_INTERVAL_MS || pending.size() >= FLUSH_BYTES || written >= MAX_FILE_BYTES) {
+                handOff();
+                lastFlush = now;
+                if (written >= MAX_FILE_BYTES) rotate();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void handOff() {
+        blocks.add(new Block(pendingFile, pending.toByteArray()));
+        pending.reset();
+        pendingFile = null;
+        io.execute(this::drain);
+    }
+
+    private void drain() {
+        synchronized (fileLock) {
+            Block block;
+            while ((block = blocks.poll()) != null) {
+                try {
+                    if (block.newFile != null) openFile(block.newFile);
+                    if (file != null) file.write(block.data);
+                } catch (IOException e) {
+                    failed = true;
+                    blocks.clear();
+                    LogCollector.addError("TRACE", "Trace write failed, recording disabled", e);
+                }
+            }
+        }
+    }
+
+    private void openPendingFile() throws IOException {
+        synchronized (fileLock) {
+            openFile(pendingFile);
+        }
+        pendingFile = null;
+    }
+
+    private void openFile(File target) throws IOException {
+        if (file != null) {
+            try { file.close(); } catch (IOException e) {}
+            file = null;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File[] old = dir.listFiles((d, name) -> name.endsWith(".trace"));
+        if (old != null && old.length >= MAX_FILES) {
+            Arrays.sort(old, (a, b) -> a.getName().compareTo(b.getName()));
+            for (int i = 0; i <= old.length - MAX_FILES; i++) old[i].delete();
+        }
+        file = new FileOutputStream(target);
+    }
+
+    private void beginEvent(int type) throws IOException {
+        out.writeByte(type);
+        written++;
+        writeVarLong(SystemClock.elapsedRealtime() - baseTime);
+        events++;
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+            written++;
+        }
+        out.writeByte((int) v);
+        written++;
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static int langCode(String lang) {
+        for (int i = 0; i < LANGS.length; i++) {
+            if (LANGS[i].equals(lang)) return i;
+        }
+        return LANGS.length;
+    }
+
+    static String langName(int code) {
+        return code >= 0 && code < LANGS.length ? LANGS[code] : "OTHER";
+    }
+
+    private void fail(IOException e) {
+        LogCollector.addError("TRACE", "Trace write failed, recording disabled", e);
+        failed = true;
+    }
+
+    public synchronized void close() {
+        if (out == null) return;
+        if (!failed) handOff();
+        drain();
+        synchronized (fileLock) {
+            if (file != null) {
+                try { file.close(); } catch (IOException e) {}
+                file = null;
+            }
+        }
+        bytesTotal += written;
+        written = 0;
+        out = null;
+    }
+
+    public synchronized String getSummary() {
+        return String.format(Locale.US, "trace: %s events=%d bytes=%d privacy=%b",
+                current != null ? current.getName() : "-", events, bytesTotal + (out != null ? written : 0), privacy);
+    }
+}
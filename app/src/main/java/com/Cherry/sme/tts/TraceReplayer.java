@@ -0,0 +1,208 @@
+package com.cherry.sme.tts;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.speech.tts.SynthesisRequest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TraceReplayer {
+
+    public static final String ACTION_REPLAY_TRACE = "com.cherry.sme.tts.action.REPLAY_TRACE";
+    public static final String EXTRA_TRACE_PATH = "trace_path";
+    public static final String EXTRA_SPEED = "speed";
+    public static final String EXTRA_FAKE_ENGINES = "fake_engines";
+
+    private static final char[] FILLER_SHAN = {'\u1019', '\u1082', '\u103A', '\u1087', ' '};
+    private static final char[] FILLER_MYANMAR = {'\u1019', '\u1004', '\u103A', '\u1038', ' '};
+    private static final char[] FILLER_ENGLISH = {'t', 'e', 's', 't', ' '};
+
+    public static class Chunk {
+        public int lang;
+        public int length;
+        public long waitMs;
+        public long speakMs;
+        public int outcome;
+    }
+
+    public static class Request {
+        public long seq;
+        public long atMs;
+        public int callerUid;
+        public int rate;
+        public int pitch;
+        public int textLength;
+        public String text;
+        public long textHash;
+        public long totalMs = -1;
+        public final List<Chunk> chunks = new ArrayList<>();
+    }
+
+    public static class Trace {
+        public long wallTime;
+        public boolean privacy;
+        public final List<Request> requests = new ArrayList<>();
+        public final List<Long> stops = new ArrayList<>();
+        public boolean truncated;
+    }
+
+    public static Trace read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 8192));
+        try {
+            if (in.readInt() != TraceRecorder.MAGIC) throw new IOException("Not a trace file");
+            int version = in.readInt();
+            if (version != TraceRecorder.VERSION) throw new IOException("Unsupported trace version " + version);
+            Trace trace = new Trace();
+            trace.wallTime = in.readLong();
+            trace.privacy = (in.readInt() & TraceRecorder.FLAG_PRIVACY) != 0;
+            Map<Long, Request> bySeq = new HashMap<>();
+            while (true) {
+                int type = in.read();
+                if (type < 0) break;
+                try {
+                    long at = readVarLong(in);
+                    if (type == TraceRecorder.EVENT_REQUEST) {
+                        Request r = new Request();
+                        r.atMs = at;
+                        r.seq = readVarLong(in);
+                        long uid = readVarLong(in);
+                        r.callerUid = (int) ((uid >>> 1) ^ -(uid & 1));
+                        r.rate = (int) readVarLong(in);
+                        r.pitch = (int) readVarLong(in);
+                        r.textLength = (int) readVarLong(in);
+                        if ((in.readUnsignedByte() & TraceRecorder.FLAG_TEXT_HASHED) != 0) {
+                            r.textHash = in.readLong();
+                        } else {
+                            byte[] utf8 = new byte[(int) readVarLong(in)];
+                            in.readFully(utf8);
+                            r.text = new String(utf8, StandardCharsets.UTF_8);
+                        }
+                        trace.requests.add(r);
+                        bySeq.put(r.seq, r);
+                    } else if (type == TraceRecorder.EVENT_CHUNK) {
+                        Request r = bySeq.get(readVarLong(in));
+                        Chunk c = new Chunk();
+                        c.lang = in.readUnsignedByte();
+                        c.outcome = in.readUnsignedByte();
+                        c.length = (int) readVarLong(in);
+                        c.waitMs = readVarLong(in);
+                        c.speakMs = readVarLong(in);
+                        if (r != null) r.chunks.add(c);
+                    } else if (type == TraceRecorder.EVENT_STOP) {
+                        trace.stops.add(at);
+                    } else if (type == TraceRecorder.EVENT_END) {
+                        Request r = bySeq.get(readVarLong(in));
+                        long total = readVarLong(in);
+                        if (r != null) r.totalMs = total;
+                    } else {
+                        throw new IOException("Unknown trace event " + type);
+                    }
+                } catch (EOFException e) {
+                    trace.truncated = true;
+                    break;
+                }
+            }
+            return trace;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+            if (shift > 63) throw new IOException("Malformed varint");
+        }
+    }
+
+    static String textFor(Request r) {
+        if (r.text != null) return r.text;
+        StringBuilder sb = new StringBuilder(r.textLength);
+        for (Chunk c : r.chunks) appendFiller(sb, c.lang, c.length);
+        if (sb.length() == 0) appendFiller(sb, TraceRecorder.langCode("ENGLISH"), r.textLength);
+        return sb.toString();
+    }
+
+    private static void appendFiller(StringBuilder sb, int lang, int length) {
+        char[] filler = lang == 0 ? FILLER_SHAN : lang == 1 ? FILLER_MYANMAR : FILLER_ENGLISH;
+        if (sb.length() > 0) sb.append(' ');
+        for (int i = 0; i < length; i++) sb.append(filler[i % filler.length]);
+    }
+
+    public static String replay(AutoTTSManagerService service, Trace trace, float speed) {
+        final float s = speed > 0 ? speed : 1.0f;
+        ScheduledThreadPoolExecutor stopper = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "TTS-ReplayStop");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] original = new long[trace.requests.size()];
+        long[] replayed = new long[trace.requests.size()];
+        AtomicLong audioBytes = new AtomicLong(0);
+        int n = 0;
+        int recorded = 0;
+        int lagging = 0;
+        long start = SystemClock.elapsedRealtime();
+        try {
+            for (long at : trace.stops) {
+                stopper.schedule(service::onStop, (long) (at / s), TimeUnit.MILLISECONDS);
+            }
+            for (Request r : trace.requests) {
+                if (Thread.currentThread().isInterrupted()) break;
+                long wait = start + (long) (r.atMs / s) - SystemClock.elapsedRealtime();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                } else if (wait < -100) {
+                    lagging++;
+                }
+                long t0 = SystemClock.elapsedRealtime();
+                service.synthesizeAs(new SynthesisRequest(textFor(r), new Bundle()), new LoadHarness.CountingCallback(audioBytes),
+                        r.rate, r.pitch, r.callerUid);
+                replayed[n++] = SystemClock.elapsedRealtime() - t0;
+                if (r.totalMs >= 0) original[recorded++] = r.totalMs;
+            }
+        } finally {
+            stopper.shutdownNow();
+        }
+        long[] o = Arrays.copyOf(original, recorded);
+        long[] p = Arrays.copyOf(replayed, n);
+        Arrays.sort(o);
+        Arrays.sort(p);
+        return String.format(Locale.US, "Replayed %d/%d requests at %.1fx in %dms (%d stops, %d started late%s)\n"
+                        + "original p50=%dms p95=%dms max=%dms | replay p50=%dms p95=%dms max=%dms",
+                n, trace.requests.size(), s, SystemClock.elapsedRealtime() - start, trace.stops.size(), lagging,
+                trace.privacy ? ", hashed text replaced with filler" : "",
+                percentile(o, 0.5), percentile(o, 0.95), percentile(o, 1.0),
+                percentile(p, 0.5), percentile(p, 0.95), percentile(p, 1.0));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+}
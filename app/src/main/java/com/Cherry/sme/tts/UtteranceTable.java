@@ -0,0 +1,174 @@
+package com.cherry.sme.tts;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UtteranceTable {
+
+    public static final int DONE = 0;
+    public static final int ERROR = 1;
+    public static final int TIMEOUT = 2;
+    public static final int CANCELLED = 3;
+    public static final int EVICTED = 4;
+
+    private static final int FREE = 0;
+    private static final int PENDING = 1;
+
+    private static final class Slot {
+        long id = -1;
+        int state = FREE;
+        int outcome;
+        long deadline;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    private final AtomicLong registered = new AtomicLong(0);
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong timeouts = new AtomicLong(0);
+    private final AtomicLong cancelled = new AtomicLong(0);
+    private final AtomicLong orphans = new AtomicLong(0);
+    private final AtomicLong staleCallbacks = new AtomicLong(0);
+    private volatile int maxInFlight;
+
+    public UtteranceTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) slots[i] = new Slot();
+        mask = size - 1;
+    }
+
+    public long register(long timeoutMs) {
+        long now = SystemClock.elapsedRealtime();
+        expireOverdue(now);
+        long id = sequence.incrementAndGet();
+        Slot slot = slots[(int) (id & mask)];
+        synchronized (slot) {
+            if (slot.state == PENDING && slot.outcome < 0) {
+                orphans.incrementAndGet();
+            }
+            slot.notifyAll();
+            slot.id = id;
+            slot.state = PENDING;
+            slot.outcome = -1;
+            slot.deadline = now + timeoutMs;
+        }
+        registered.incrementAndGet();
+        int inFlight = inFlight();
+        if (inFlight > maxInFlight) maxInFlight = inFlight;
+        return id;
+    }
+
+    public void complete(CharSequence utteranceId, boolean error) {
+        long id = parseId(utteranceId);
+        if (id <= 0) return;
+        Slot slot = slots[(int) (id & mask)];
+        synchronized (slot) {
+            if (slot.id != id || slot.state != PENDING || slot.outcome >= 0) {
+                staleCallbacks.incrementAndGet();
+                return;
+            }
+            slot.outcome = error ? ERROR : DONE;
+            slot.notifyAll();
+        }
+        if (error) errors.incrementAndGet();
+        else completed.incrementAndGet();
+    }
+
+    public int await(long id, long timeoutMs) throws InterruptedException {
+        Slot slot = slots[(int) (id & mask)];
+        synchronized (slot) {
+            try {
+                long end = SystemClock.elapsedRealtime() + timeoutMs;
+                while (slot.id == id && slot.outcome < 0) {
+                    long remaining = end - SystemClock.elapsedRealtime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        orphans.incrementAndGet();
+                        return TIMEOUT;
+                    }
+                    slot.wait(remaining);
+                }
+                return slot.id == id ? slot.outcome : EVICTED;
+            } finally {
+                if (slot.id == id) slot.state = FREE;
+            }
+        }
+    }
+
+    public void release(long id) {
+        Slot slot = slots[(int) (id & mask)];
+        synchronized (slot) {
+            if (slot.id == id && slot.state == PENDING) {
+                slot.state = FREE;
+                slot.notifyAll();
+            }
+        }
+    }
+
+    public void cancelAll() {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                if (slot.state == PENDING && slot.outcome < 0) {
+                    slot.outcome = CANCELLED;
+                    cancelled.incrementAndGet();
+                    slot.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void expireOverdue(long now) {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                if (slot.state == PENDING && slot.outcome < 0 && slot.deadline < now) {
+                    slot.outcome = TIMEOUT;
+                    slot.state = FREE;
+                    orphans.incrementAndGet();
+                    slot.notifyAll();
+                }
+            }
+        }
+    }
+
+    public int inFlight() {
+        int n = 0;
+        for (Slot slot : slots) {
+            if (slot.state == PENDING) n++;
+        }
+        return n;
+    }
+
+    public static long parseId(CharSequence s) {
+        if (s == null) return -1;
+        int len = s.length();
+        if (len == 0 || len > 18) return -1;
+        long v = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    public long getOrphans() {
+        return orphans.get();
+    }
+
+    public String getSummary() {
+        return "registered=" + registered.get()
+                + " done=" + completed.get()
+                + " errors=" + errors.get()
+                + " timeouts=" + timeouts.get()
+                + " cancelled=" + cancelled.get()
+                + " orphans=" + orphans.get()
+                + " staleCallbacks=" + staleCallbacks.get()
+                + " inFlight=" + inFlight() + "/" + slots.length
+                + " maxInFlight=" + maxInFlight;
+    }
+}
@@ -0,0 +1,151 @@
+package com.cherry.sme.tts;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+public class WavIO {
+
+    public static final int HEADER_SIZE = 44;
+
+    public static class Format {
+        public final int sampleRate;
+        public final int channels;
+        public final int bitsPerSample;
+        public final long dataOffset;
+        public final long dataLength;
+
+        public Format(int sampleRate, int channels, int bitsPerSample, long dataOffset, long dataLength) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.bitsPerSample = bitsPerSample;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        public int bytesPerFrame() {
+            return channels * (bitsPerSample / 8);
+        }
+
+        public long durationMs() {
+            int frameBytes = bytesPerFrame();
+            if (sampleRate <= 0 || frameBytes <= 0) return 0;
+            return dataLength / frameBytes * 1000L / sampleRate;
+        }
+    }
+
+    public static Format readHeader(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(in);
+        byte[] tag = new byte[4];
+        din.readFully(tag);
+        if (!"RIFF".equals(new String(tag, "US-ASCII"))) throw new IOException("Not a RIFF file");
+        readIntLE(din);
+        din.readFully(tag);
+        if (!"WAVE".equals(new String(tag, "US-ASCII"))) throw new IOException("Not a WAVE file");
+        long offset = 12;
+        int sampleRate = 0;
+        int channels = 0;
+        int bits = 0;
+        while (true) {
+            try {
+                din.readFully(tag);
+            } catch (EOFException e) {
+                throw new IOException("No data chunk");
+            }
+            long size = readIntLE(din) & 0xFFFFFFFFL;
+            offset += 8;
+            String id = new String(tag, "US-ASCII");
+            if ("fmt ".equals(id)) {
+                int audioFormat = readShortLE(din);
+                channels = readShortLE(din);
+                sampleRate = readIntLE(din);
+                readIntLE(din);
+                readShortLE(din);
+                bits = readShortLE(din);
+                skipFully(din, size - 16);
+                if (audioFormat != 1) throw new IOException("Unsupported WAV encoding " + audioFormat);
+            } else if ("data".equals(id)) {
+                if (size == 0 || size == 0xFFFFFFFFL) size = Long.MAX_VALUE;
+                return new Format(sampleRate, channels, bits, offset, size);
+            } else {
+                skipFully(din, size + (size & 1));
+                offset += size & 1;
+            }
+            offset += size;
+        }
+    }
+
+    public static void writeHeader(OutputStream out, int sampleRate, int channels, int bitsPerSample, long dataLength) throws IOException {
+        out.write(buildHeader(sampleRate, channels, bitsPerSample, dataLength));
+    }
+
+    public static void patchHeader(RandomAccessFile file, int sampleRate, int channels, int bitsPerSample, long dataLength) throws IOException {
+        file.seek(0);
+        file.write(buildHeader(sampleRate, channels, bitsPerSample, dataLength));
+    }
+
+    private static byte[] buildHeader(int sampleRate, int channels, int bitsPerSample, long dataLength) {
+        byte[] h = new byte[HEADER_SIZE];
+        int byteRate = sampleRate * channels * bitsPerSample / 8;
+        long riffSize = Math.min(0xFFFFFFFFL, dataLength + 36);
+        long dataSize = Math.min(0xFFFFFFFFL, dataLength);
+        putAscii(h, 0, "RIFF");
+        putIntLE(h, 4, (int) riffSize);
+        putAscii(h, 8, "WAVE");
+        putAscii(h, 12, "fmt ");
+        putIntLE(h, 16, 16);
+        putShortLE(h, 20, 1);
+        putShortLE(h, 22, channels);
+        putIntLE(h, 24, sampleRate);
+        putIntLE(h, 28, byteRate);
+        putShortLE(h, 32, channels * bitsPerSample / 8);
+        putShortLE(h, 34, bitsPerSample);
+        putAscii(h, 36, "data");
+        putIntLE(h, 40, (int) dataSize);
+        return h;
+    }
+
+    private static void putAscii(byte[] b, int off, String s) {
+        for (int i = 0; i < 4; i++) b[off + i] = (byte) s.charAt(i);
+    }
+
+    private static void putIntLE(byte[] b, int off, int v) {
+        b[off] = (byte) v;
+        b[off + 1] = (byte) (v >> 8);
+        b[off + 2] = (byte) (v >> 16);
+        b[off + 3] = (byte) (v >> 24);
+    }
+
+    private static void putShortLE(byte[] b, int off, int v) {
+        b[off] = (byte) v;
+        b[off + 1] = (byte) (v >> 8);
+    }
+
+    private static int readIntLE(DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        int b2 = in.readUnsignedByte();
+        int b3 = in.readUnsignedByte();
+        return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+    }
+
+    private static int readShortLE(DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        return b0 | (b1 << 8);
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.cherry.sme.tts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ZawgyiConverter {
+
+    public static final String PREF_ENABLED = "pref_zawgyi_convert";
+
+    private static final double ZAWGYI_THRESHOLD = 0.95;
+    private static final int CACHE_MAX_ENTRIES = 256;
+    private static final int CACHE_MAX_TEXT_LENGTH = 256;
+    private static final int MAX_SYLLABLE_UNITS = 32;
+    private static final int MAX_UNITS_PER_CHAR = 4;
+
+    private static final int W_KINZI = -1;
+    private static final int W_BASE = 0;
+    private static final int W_STACKED = 10;
+
+    private static final char[][] ZG_TABLE = new char[0xA0][];
+    private static final boolean[] ZG_PREFIX = new boolean[0xA0];
+
+    private static final AtomicLong cacheHits = new AtomicLong(0);
+    private static final AtomicLong cacheMisses = new AtomicLong(0);
+    private static final AtomicLong conversions = new AtomicLong(0);
+
+    private static final Map<String, String> resultCache = new LinkedHashMap<String, String>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_MAX_ENTRIES;
+        }
+    };
+
+    private static final ThreadLocal<Syllable> syllables = new ThreadLocal<Syllable>() {
+        @Override
+        protected Syllable initialValue() {
+            return new Syllable();
+        }
+    };
+
+    static {
+        map(0x1033, "\u102F");
+        map(0x1034, "\u1030");
+        map(0x1039, "\u103A");
+        map(0x103A, "\u103B");
+        map(0x103B, "\u103C");
+        map(0x103C, "\u103D");
+        map(0x103D, "\u103E");
+        map(0x103F, "\u1030");
+        map(0x105A, "\u102B\u103A");
+        map(0x1060, "\u1039\u1000");
+        map(0x1061, "\u1039\u1001");
+        map(0x1062, "\u1039\u1002");
+        map(0x1063, "\u1039\u1003");
+        map(0x1064, "\u1004\u103A\u1039");
+        map(0x1065, "\u1039\u1005");
+        map(0x1066, "\u1039\u1006");
+        map(0x1067, "\u1039\u1006");
+        map(0x1068, "\u1039\u1007");
+        map(0x1069, "\u1039\u1008");
+        map(0x106A, "\u1009");
+        map(0x106B, "\u100A");
+        map(0x106C, "\u1039\u100B");
+        map(0x106D, "\u1039\u100C");
+        map(0x106E, "\u100D\u1039\u100D");
+        map(0x106F, "\u100D\u1039\u100E");
+        map(0x1070, "\u1039\u100F");
+        map(0x1071, "\u1039\u1010");
+        map(0x1072, "\u1039\u1010");
+        map(0x1073, "\u1039\u1011");
+        map(0x1074, "\u1039\u1011");
+        map(0x1075, "\u1039\u1012");
+        map(0x1076, "\u1039\u1013");
+        map(0x1077, "\u1039\u1014");
+        map(0x1078, "\u1039\u1015");
+        map(0x1079, "\u1039\u1016");
+        map(0x107A, "\u1039\u1017");
+        map(0x107B, "\u1039\u1018");
+        map(0x107C, "\u1039\u1019");
+        map(0x107D, "\u103B");
+        for (int cp = 0x107E; cp <= 0x1084; cp++) {
+            map(cp, "\u103C");
+            ZG_PREFIX[cp - 0x1000] = true;
+        }
+        map(0x1085, "\u1039\u101C");
+        map(0x1086, "\u103F");
+        map(0x1087, "\u103E");
+        map(0x1088, "\u103E\u102F");
+        map(0x1089, "\u103E\u1030");
+        map(0x108A, "\u103D\u103E");
+        map(0x108B, "\u1004\u103A\u1039\u102D");
+        map(0x108C, "\u1004\u103A\u1039\u102E");
+        map(0x108D, "\u1004\u103A\u1039\u1036");
+        map(0x108E, "\u102D\u1036");
+        map(0x108F, "\u1014");
+        map(0x1090, "\u101B");
+        map(0x1091, "\u100F\u1039\u100D");
+        map(0x1092, "\u100B\u1039\u100C");
+        map(0x1093, "\u1039\u1018");
+        map(0x1094, "\u1037");
+        map(0x1095, "\u1037");
+        map(0x1096, "\u1039\u1010\u103D");
+        map(0x1097, "\u100B\u1039\u100B");
+        ZG_PREFIX[0x1031 - 0x1000] = true;
+        ZG_PREFIX[0x103B - 0x1000] = true;
+    }
+
+    private static void map(int zawgyi, String unicode) {
+        ZG_TABLE[zawgyi - 0x1000] = unicode.toCharArray();
+    }
+
+    private static boolean isConsonant(char c) {
+        return c >= '\u1000' && c <= '\u1021';
+    }
+
+    private static boolean isMyanmar(char c) {
+        return c >= '\u1000' && c <= '\u109F';
+    }
+
+    public static double zawgyiProbability(CharSequence text) {
+        if (text == null) return 0.0;
+        int len = text.length();
+        int score = 0;
+        int evidence = 0;
+        char prev = ' ';
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (!isMyanmar(c)) {
+                prev = c;
+                continue;
+            }
+            char next = i + 1 < len ? text.charAt(i + 1) : ' ';
+            boolean prevMyanmar = isMyanmar(prev);
+            int w = 0;
+            if (c == '\u1031') {
+                if (!prevMyanmar && (isConsonant(next) || next == '\u103B')) w = 4;
+                else if (isConsonant(prev) || (prev >= '\u103B' && prev <= '\u103E')) w = -2;
+            } else if (c == '\u103B') {
+                if (!prevMyanmar && isConsonant(next)) w = 4;
+            } else if (c == '\u1039') {
+                if (!isConsonant(next)) w = 3;
+            } else if (c == '\u103E') {
+                w = -2;
+            } else if (c == '\u1033' || c == '\u1034') {
+                if (isConsonant(prev)) w = 2;
+            } else if (c >= '\u107E' && c <= '\u1084') {
+                if (isConsonant(next) && (!prevMyanmar || prev == '\u1031')) w = 4;
+                else if (c == '\u1082' && isConsonant(prev)) w = -2;
+            } else if ((c >= '\u1060' && c <= '\u1074' && c != '\u1062')
+                    || (c >= '\u1091' && c <= '\u1097')) {
+                if (isConsonant(prev)) w = 3;
+            } else if (c == '\u1085' || (c >= '\u108B' && c <= '\u108D')) {
+                // U+1085 is also the Shan vowel sign E above; too weak to convert on its own.
+                if (isConsonant(prev)) w = 1;
+            } else if (c == '\u105A' || c == '\u1094' || c == '\u1095') {
+                w = 1;
+            }
+            if (w != 0) {
+                score += w;
+                evidence++;
+            }
+            prev = c;
+        }
+        if (evidence == 0) return 0.0;
+        return 1.0 / (1.0 + Math.exp(-score));
+    }
+
+    public static boolean isZawgyi(CharSequence text) {
+        return zawgyiProbability(text) >= ZAWGYI_THRESHOLD;
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) return text;
+        boolean cacheable = text.length() <= CACHE_MAX_TEXT_LENGTH;
+        if (cacheable) {
+            synchronized (resultCache) {
+                String cached = resultCache.get(text);
+                if (cached != null) {
+                    cacheHits.incrementAndGet();
+                    return cached;
+                }
+            }
+            cacheMisses.incrementAndGet();
+        }
+        String result = isZawgyi(text) ? toUnicode(text) : text;
+        if (cacheable) {
+            synchronized (resultCache) {
+                resultCache.put(text, result);
+            }
+        }
+        return result;
+    }
+
+    public static String toUnicode(CharSequence text) {
+        int len = text.length();
+        StringBuilder out = new StringBuilder(len + 8);
+        Syllable syl = syllables.get();
+        syl.reset();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (!isSyllableChar(c)) {
+                syl.flush(out);
+                out.append(c);
+                continue;
+            }
+            int idx = c - 0x1000;
+            if (syl.isFull()) syl.flush(out);
+            if (ZG_PREFIX[idx]) {
+                if (syl.hasBase) syl.flush(out);
+                syl.add(c, idx);
+                continue;
+            }
+            char[] mapped = ZG_TABLE[idx];
+            boolean base = mapped == null ? isConsonant(c) || (c >= '\u1023' && c <= '\u102A')
+                    : (isConsonant(mapped[0]) && mapped[0] != '\u1004') || mapped[0] == '\u103F';
+            if (base && syl.hasBase) syl.flush(out);
+            syl.add(c, idx);
+        }
+        syl.flush(out);
+        conversions.incrementAndGet();
+        return out.toString();
+    }
+
+    private static boolean isSyllableChar(char c) {
+        if (!isMyanmar(c)) return false;
+        int idx = c - 0x1000;
+        return ZG_PREFIX[idx] || ZG_TABLE[idx] != null || isConsonant(c)
+                || (c >= '\u1023' && c <= '\u102A') || weightOf(c) != W_BASE;
+    }
+
+    private static int weightOf(char u) {
+        switch (u) {
+            case '\u103B': return 20;
+            case '\u103C': return 21;
+            case '\u103D': return 22;
+            case '\u103E': return 23;
+            case '\u1031': return 30;
+            case '\u102D':
+            case '\u102E':
+            case '\u1032': return 40;
+            case '\u102F':
+            case '\u1030': return 50;
+            case '\u102B':
+            case '\u102C': return 60;
+            case '\u1036': return 70;
+            case '\u1037': return 80;
+            case '\u103A': return 90;
+            case '\u1038': return 100;
+            default: return W_BASE;
+        }
+    }
+
+    private static class Syllable {
+        final int[] weights = new int[MAX_SYLLABLE_UNITS];
+        final char[] units = new char[MAX_SYLLABLE_UNITS * 4];
+        final int[] unitLengths = new int[MAX_SYLLABLE_UNITS];
+        int count;
+        boolean hasBase;
+
+        void reset() {
+            count = 0;
+            hasBase = false;
+        }
+
+        boolean isFull() {
+            return count > MAX_SYLLABLE_UNITS - MAX_UNITS_PER_CHAR;
+        }
+
+        void add(char zawgyi, int idx) {
+            char[] mapped = ZG_TABLE[idx];
+            if (mapped == null) {
+                int w = weightOf(zawgyi);
+                if (w == W_BASE) hasBase = true;
+                push(w, zawgyi);
+                return;
+            }
+            int i = 0;
+            while (i < mapped.length) {
+                char u = mapped[i];
+                if (u == '\u1004' && i + 2 < mapped.length && mapped[i + 1] == '\u103A' && mapped[i + 2] == '\u1039') {
+                    push(W_KINZI, mapped, i, 3);
+                    i += 3;
+                } else if (u == '\u1039' && i + 1 < mapped.length) {
+                    push(W_STACKED, mapped, i, 2);
+                    i += 2;
+                } else {
+                    int w = weightOf(u);
+                    if (w == W_BASE) hasBase = true;
+                    push(w, u);
+                    i++;
+                }
+            }
+        }
+
+        private void push(int weight, char u) {
+            weights[count] = weight;
+            units[count * 4] = u;
+            unitLengths[count] = 1;
+            count++;
+        }
+
+        private void push(int weight, char[] src, int from, int length) {
+            weights[count] = weight;
+            System.arraycopy(src, from, units, count * 4, length);
+            unitLengths[count] = length;
+            count++;
+        }
+
+        void flush(StringBuilder out) {
+            for (int i = 1; i < count; i++) {
+                int w = weights[i];
+                int len = unitLengths[i];
+                char c0 = units[i * 4], c1 = units[i * 4 + 1], c2 = units[i * 4 + 2];
+                int j = i - 1;
+                while (j >= 0 && weights[j] > w) {
+                    weights[j + 1] = weights[j];
+                    unitLengths[j + 1] = unitLengths[j];
+                    System.arraycopy(units, j * 4, units, (j + 1) * 4, 3);
+                    j--;
+                }
+                weights[j + 1] = w;
+                unitLengths[j + 1] = len;
+                units[(j + 1) * 4] = c0;
+                units[(j + 1) * 4 + 1] = c1;
+                units[(j + 1) * 4 + 2] = c2;
+            }
+            for (int i = 0; i < count; i++) {
+                out.append(units, i * 4, unitLengths[i]);
+            }
+            reset();
+        }
+    }
+
+    public static long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public static long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public static long getConversions() {
+        return conversions.get();
+    }
+}
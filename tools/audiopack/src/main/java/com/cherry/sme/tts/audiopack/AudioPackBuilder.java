@@ -0,0 +1,152 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AudioPackBuilder {
+
+    private static final int SAVE_EVERY = 200;
+
+    public static void main(String[] args) throws Exception {
+        File wavDir = new File("storage/shared/my_wavs");
+        File outDir = new File("storage/shared/processed_audio");
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean force = false;
+        boolean textIndex = false;
+        ClipEncoder.Settings settings = new ClipEncoder.Settings();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if ("--wav-dir".equals(a)) wavDir = new File(value(args, ++i));
+            else if ("--out-dir".equals(a)) outDir = new File(value(args, ++i));
+            else if ("--jobs".equals(a)) jobs = Math.max(1, parseInt(value(args, ++i)));
+            else if ("--rate".equals(a)) settings.sampleRate = parseInt(value(args, ++i));
+            else if ("--rms-db".equals(a)) settings.targetRmsDb = parseDouble(value(args, ++i));
+            else if ("--bitrate".equals(a)) settings.bitrateKbps = parseInt(value(args, ++i));
+            else if ("--opusenc".equals(a)) settings.opusenc = value(args, ++i);
+            else if ("--force".equals(a)) force = true;
+            else if ("--text-index".equals(a)) textIndex = true;
+            else usage();
+        }
+        System.exit(new AudioPackBuilder().build(wavDir, outDir, jobs, settings, force, textIndex) ? 0 : 1);
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) usage();
+        return args[i];
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            usage();
+            return -1;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            usage();
+            return -1;
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: audiopack [--wav-dir DIR] [--out-dir DIR] [--jobs N] [--rate HZ]"
+                + " [--rms-db DB] [--bitrate KBPS] [--opusenc PATH] [--force] [--text-index]");
+        System.exit(2);
+    }
+
+    public boolean build(File wavDir, File outDir, int jobs, final ClipEncoder.Settings settings,
+                         boolean force, boolean textIndex) throws IOException, InterruptedException {
+        if (!wavDir.isDirectory()) {
+            System.err.println("Error: " + wavDir + " not found");
+            return false;
+        }
+        final File opusDir = new File(outDir, "opus");
+        if (!opusDir.isDirectory() && !opusDir.mkdirs()) throw new IOException("cannot create " + opusDir);
+        final Manifest manifest = new Manifest(new File(outDir, "manifest.tsv"));
+        manifest.load();
+
+        String[] names = wavDir.list((dir, name) -> name.endsWith(".wav"));
+        if (names == null) names = new String[0];
+        Arrays.sort(names);
+        Set<String> present = new HashSet<>();
+        List<String> stale = new ArrayList<>();
+        final String key = settings.key();
+        for (String wavName : names) {
+            String name = wavName.substring(0, wavName.length() - 4);
+            present.add(name);
+            if (force || !manifest.isUpToDate(name, new File(wavDir, wavName), new File(opusDir, name + ".opus"), key)) {
+                stale.add(name);
+            }
+        }
+        manifest.retainOnly(present);
+        File[] opusFiles = opusDir.listFiles((dir, name) -> name.endsWith(".opus"));
+        if (opusFiles != null) {
+            for (File f : opusFiles) {
+                String name = f.getName().substring(0, f.getName().length() - 5);
+                if (!present.contains(name)) f.delete();
+            }
+        }
+
+        System.out.println(names.length + " clips, " + stale.size() + " to encode at " + settings.sampleRate
+                + " Hz mono with " + jobs + " workers");
+        long start = System.nanoTime();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final int total = stale.size();
+        final ClipEncoder encoder = new ClipEncoder(settings);
+        final File wavRoot = wavDir;
+        ExecutorService pool = Executors.newWorkStealingPool(jobs);
+        try {
+            for (final String name : stale) {
+                pool.execute(() -> {
+                    File wav = new File(wavRoot, name + ".wav");
+                    try {
+                        long size = wav.length();
+                        long modified = wav.lastModified();
+                        ClipEncoder.Result r = encoder.encode(wav, new File(opusDir, name + ".opus"));
+                        manifest.put(new Manifest.Entry(name, size, modified, key, r.length, r.crc));
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Failed: " + name + " (" + e.getMessage() + ")");
+                    }
+                    int n = done.incrementAndGet();
+                    if (n % 100 == 0) System.out.println("Processing " + n + "/" + total + "...");
+                    if (n % SAVE_EVERY == 0) {
+                        try {
+                            manifest.save();
+                        } catch (IOException e) {
+                            System.err.println("Manifest save failed: " + e.getMessage());
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            manifest.save();
+        }
+        long encodeMs = (System.nanoTime() - start) / 1000000;
+        System.out.println("Encoding complete: " + (total - failed.get()) + " success, " + failed.get()
+                + " failed out of " + total + " in " + encodeMs + " ms");
+
+        List<Manifest.Entry> entries = manifest.entries();
+        long bytes = PackWriter.write(entries, opusDir, new File(outDir, "audio.din"),
+                new File(outDir, "index.bin"), textIndex ? new File(outDir, "index.txt") : null);
+        System.out.println("Packed " + entries.size() + " clips (" + bytes + " bytes) into " + new File(outDir, "audio.din"));
+        return failed.get() == 0;
+    }
+}
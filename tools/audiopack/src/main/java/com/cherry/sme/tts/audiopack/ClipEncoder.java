@@ -0,0 +1,151 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class ClipEncoder {
+
+    private static final int BLOCK = 4096;
+    private static final double MIN_GAIN_DB = -25;
+    private static final double MAX_GAIN_DB = 20;
+    private static final File NULL_FILE = new File(System.getProperty("os.name", "").startsWith("Windows") ? "NUL" : "/dev/null");
+
+    public static class Settings {
+        public int sampleRate = 24000;
+        public double targetRmsDb = -20.0;
+        public int bitrateKbps = 48;
+        public String opusenc = "opusenc";
+
+        public String key() {
+            return sampleRate + "/" + targetRmsDb + "/" + bitrateKbps;
+        }
+    }
+
+    public static class Result {
+        public final long length;
+        public final long crc;
+        public final double gainDb;
+
+        Result(long length, long crc, double gainDb) {
+            this.length = length;
+            this.crc = crc;
+            this.gainDb = gainDb;
+        }
+    }
+
+    private final Settings settings;
+
+    public ClipEncoder(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Result encode(File wav, File opus) throws IOException, InterruptedException {
+        double gainDb = computeGainDb(wav);
+        final float gain = (float) Math.pow(10.0, gainDb / 20.0);
+        File tmp = new File(opus.getPath() + ".tmp");
+        List<String> cmd = new ArrayList<>();
+        cmd.add(settings.opusenc);
+        cmd.add("--quiet");
+        cmd.add("--raw");
+        cmd.add("--raw-bits");
+        cmd.add("16");
+        cmd.add("--raw-rate");
+        cmd.add(String.valueOf(settings.sampleRate));
+        cmd.add("--raw-chan");
+        cmd.add("1");
+        cmd.add("--bitrate");
+        cmd.add(String.valueOf(settings.bitrateKbps));
+        cmd.add("--comp");
+        cmd.add("10");
+        cmd.add("--framesize");
+        cmd.add("20");
+        cmd.add("--vbr");
+        cmd.add("-");
+        cmd.add(tmp.getPath());
+        Process process = new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(NULL_FILE))
+                .redirectError(ProcessBuilder.Redirect.appendTo(NULL_FILE))
+                .start();
+        boolean ok = false;
+        try {
+            final OutputStream pipe = new BufferedOutputStream(process.getOutputStream(), 65536);
+            final byte[] pcm = new byte[BLOCK * 8 * 2];
+            WavInput in = new WavInput(wav);
+            try {
+                Resampler resampler = new Resampler(in.getSampleRate(), settings.sampleRate, BLOCK);
+                Resampler.Output sink = (samples, count) -> {
+                    int o = 0;
+                    for (int i = 0; i < count; i++) {
+                        float v = samples[i] * gain * 32768f;
+                        int s = v >= 32767f ? 32767 : v <= -32768f ? -32768 : Math.round(v);
+                        pcm[o++] = (byte) s;
+                        pcm[o++] = (byte) (s >> 8);
+                        if (o == pcm.length) {
+                            pipe.write(pcm, 0, o);
+                            o = 0;
+                        }
+                    }
+                    pipe.write(pcm, 0, o);
+                };
+                float[] block = new float[BLOCK];
+                int n;
+                while ((n = in.read(block, BLOCK)) > 0) {
+                    resampler.process(block, n, sink);
+                }
+                resampler.flush(sink);
+            } finally {
+                in.close();
+                pipe.close();
+            }
+            ok = process.waitFor() == 0 && tmp.length() > 0;
+        } finally {
+            if (!ok) {
+                process.destroy();
+                tmp.delete();
+            }
+        }
+        if (!ok) throw new IOException("opusenc failed for " + wav.getName());
+        PackWriter.replace(tmp, opus);
+        return new Result(opus.length(), crc32(opus), gainDb);
+    }
+
+    private double computeGainDb(File wav) throws IOException {
+        double sum = 0;
+        long count = 0;
+        float[] block = new float[BLOCK];
+        WavInput in = new WavInput(wav);
+        try {
+            int n;
+            while ((n = in.read(block, BLOCK)) > 0) {
+                for (int i = 0; i < n; i++) sum += (double) block[i] * block[i];
+                count += n;
+            }
+        } finally {
+            in.close();
+        }
+        if (count == 0 || sum <= 0) return 0;
+        double rms = Math.sqrt(sum / count);
+        double gain = settings.targetRmsDb - 20 * Math.log10(rms);
+        return Math.max(MIN_GAIN_DB, Math.min(MAX_GAIN_DB, gain));
+    }
+
+    public static long crc32(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[65536];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n;
+            while ((n = in.read(buf)) > 0) crc.update(buf, 0, n);
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+}
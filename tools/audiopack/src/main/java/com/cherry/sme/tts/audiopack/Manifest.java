@@ -0,0 +1,100 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class Manifest {
+
+    public static class Entry {
+        public final String name;
+        public final long wavSize;
+        public final long wavModified;
+        public final String settingsKey;
+        public final long opusLength;
+        public final long crc;
+
+        public Entry(String name, long wavSize, long wavModified, String settingsKey, long opusLength, long crc) {
+            this.name = name;
+            this.wavSize = wavSize;
+            this.wavModified = wavModified;
+            this.settingsKey = settingsKey;
+            this.opusLength = opusLength;
+            this.crc = crc;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    public Manifest(File file) {
+        this.file = file;
+    }
+
+    public void load() throws IOException {
+        entries.clear();
+        if (!file.exists()) return;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split("\t");
+                if (f.length < 6) continue;
+                try {
+                    entries.put(f[0], new Entry(f[0], Long.parseLong(f[1]), Long.parseLong(f[2]), f[3],
+                            Long.parseLong(f[4]), Long.parseLong(f[5])));
+                } catch (NumberFormatException e) {}
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    public synchronized Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public synchronized void put(Entry entry) {
+        entries.put(entry.name, entry);
+    }
+
+    public synchronized void retainOnly(Set<String> names) {
+        entries.keySet().retainAll(names);
+    }
+
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public boolean isUpToDate(String name, File wav, File opus, String settingsKey) {
+        Entry e = get(name);
+        return e != null && e.wavSize == wav.length() && e.wavModified == wav.lastModified()
+                && e.settingsKey.equals(settingsKey) && opus.isFile() && opus.length() == e.opusLength;
+    }
+
+    public synchronized void save() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8));
+        try {
+            for (Entry e : entries.values()) {
+                writer.write(e.name + "\t" + e.wavSize + "\t" + e.wavModified + "\t" + e.settingsKey
+                        + "\t" + e.opusLength + "\t" + e.crc + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        PackWriter.replace(tmp, file);
+    }
+}
@@ -0,0 +1,126 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class MphIndexWriter {
+
+    public static final int MAGIC = 0x43504958;
+    public static final int VERSION = 3;
+    public static final int HEADER_SIZE = 20;
+    public static final int FINGERPRINT_SEED = 0x5BD1E995;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    public static int hash(byte[] key, int seed) {
+        int h = seed == 0 ? 0x811C9DC5 : seed;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        return h;
+    }
+
+    private static int slot(byte[] key, int seed, int n) {
+        return (hash(key, seed) & 0x7FFFFFFF) % n;
+    }
+
+    public static void write(List<Manifest.Entry> entries, long[] offsets, File file) throws IOException {
+        int n = entries.size();
+        byte[][] keys = new byte[n][];
+        int blobSize = 0;
+        for (int i = 0; i < n; i++) {
+            keys[i] = entries.get(i).name.getBytes(StandardCharsets.UTF_8);
+            blobSize += keys[i].length;
+            if (offsets[i] + entries.get(i).opusLength > 0xFFFFFFFFL) throw new IOException("pack exceeds 4 GB");
+        }
+        int[] g = new int[n];
+        int[] slotOf = build(keys, g);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[slotOf[i]] = i;
+
+        int size = HEADER_SIZE + n * 5 * 4 + (n + 1) * 4 + blobSize + 4;
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putInt(blobSize);
+        for (int i = 0; i < n; i++) buf.putInt(g[i]);
+        for (int s = 0; s < n; s++) buf.putInt((int) offsets[order[s]]);
+        for (int s = 0; s < n; s++) buf.putInt((int) entries.get(order[s]).opusLength);
+        for (int s = 0; s < n; s++) buf.putInt((int) entries.get(order[s]).crc);
+        for (int s = 0; s < n; s++) buf.putInt(hash(keys[order[s]], FINGERPRINT_SEED));
+        int nameOffset = 0;
+        for (int s = 0; s < n; s++) {
+            buf.putInt(nameOffset);
+            nameOffset += keys[order[s]].length;
+        }
+        buf.putInt(nameOffset);
+        for (int s = 0; s < n; s++) buf.put(keys[order[s]]);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(buf.array());
+        } finally {
+            out.close();
+        }
+        PackWriter.replace(tmp, file);
+    }
+
+    private static int[] build(byte[][] keys, int[] g) throws IOException {
+        int n = keys.length;
+        int[] slotOf = new int[n];
+        if (n == 0) return slotOf;
+        List<List<Integer>> buckets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) buckets.add(new ArrayList<>());
+        for (int i = 0; i < n; i++) buckets.get(slot(keys[i], 0, n)).add(i);
+        Integer[] bucketOrder = new Integer[n];
+        for (int i = 0; i < n; i++) bucketOrder[i] = i;
+        Arrays.sort(bucketOrder, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        boolean[] used = new boolean[n];
+        int[] trial = new int[n];
+        int b = 0;
+        for (; b < n; b++) {
+            List<Integer> bucket = buckets.get(bucketOrder[b]);
+            if (bucket.size() <= 1) break;
+            int d = 1;
+            int placed = 0;
+            while (placed < bucket.size()) {
+                if (d >= MAX_DISPLACEMENT) throw new IOException("perfect hash construction failed");
+                placed = 0;
+                for (int key : bucket) {
+                    int s = slot(keys[key], d, n);
+                    boolean clash = used[s];
+                    for (int k = 0; k < placed && !clash; k++) clash = trial[k] == s;
+                    if (clash) break;
+                    trial[placed++] = s;
+                }
+                if (placed < bucket.size()) d++;
+            }
+            g[bucketOrder[b]] = d;
+            for (int k = 0; k < bucket.size(); k++) {
+                used[trial[k]] = true;
+                slotOf[bucket.get(k)] = trial[k];
+            }
+        }
+        int free = 0;
+        for (; b < n; b++) {
+            List<Integer> bucket = buckets.get(bucketOrder[b]);
+            if (bucket.isEmpty()) break;
+            while (used[free]) free++;
+            used[free] = true;
+            g[bucketOrder[b]] = -free - 1;
+            slotOf[bucket.get(0)] = free;
+        }
+        return slotOf;
+    }
+}
@@ -0,0 +1,69 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class PackWriter {
+
+    public static long write(List<Manifest.Entry> entries, File opusDir, File packFile, File indexFile, File textIndexFile) throws IOException {
+        long[] offsets = new long[entries.size()];
+        File packTmp = new File(packFile.getPath() + ".tmp");
+        FileOutputStream packOut = new FileOutputStream(packTmp);
+        long offset = 0;
+        try {
+            FileChannel out = packOut.getChannel();
+            for (int i = 0; i < entries.size(); i++) {
+                Manifest.Entry e = entries.get(i);
+                File opus = new File(opusDir, e.name + ".opus");
+                if (opus.length() != e.opusLength) throw new IOException(opus.getName() + " changed since encoding");
+                FileInputStream clipIn = new FileInputStream(opus);
+                try {
+                    FileChannel in = clipIn.getChannel();
+                    long pos = 0;
+                    long size = in.size();
+                    while (pos < size) {
+                        pos += in.transferTo(pos, size - pos, out);
+                    }
+                } finally {
+                    clipIn.close();
+                }
+                offsets[i] = offset;
+                offset += e.opusLength;
+            }
+            out.force(false);
+        } finally {
+            packOut.close();
+        }
+        MphIndexWriter.write(entries, offsets, indexFile);
+        if (textIndexFile != null) writeTextIndex(entries, offsets, textIndexFile);
+        replace(packTmp, packFile);
+        return offset;
+    }
+
+    private static void writeTextIndex(List<Manifest.Entry> entries, long[] offsets, File textIndexFile) throws IOException {
+        File tmp = new File(textIndexFile.getPath() + ".tmp");
+        Writer out = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8);
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                Manifest.Entry e = entries.get(i);
+                out.write(e.name + ":" + offsets[i] + ":" + e.opusLength + "\n");
+            }
+        } finally {
+            out.close();
+        }
+        replace(tmp, textIndexFile);
+    }
+
+    static void replace(File tmp, File target) throws IOException {
+        if (target.exists() && !target.delete()) throw new IOException("cannot replace " + target);
+        if (!tmp.renameTo(target)) throw new IOException("cannot rename " + tmp);
+    }
+}
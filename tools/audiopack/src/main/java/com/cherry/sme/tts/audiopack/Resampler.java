@@ -0,0 +1,110 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.IOException;
+
+public class Resampler {
+
+    public interface Output {
+        void write(float[] samples, int count) throws IOException;
+    }
+
+    private static final int ZERO_CROSSINGS = 16;
+    private static final int TABLE_RESOLUTION = 512;
+
+    private final double step;
+    private final double cutoff;
+    private final double halfWidth;
+    private final float[] table;
+    private final float[] history;
+    private final float[] out;
+    private int historyLen;
+    private double pos;
+
+    public Resampler(int inRate, int outRate, int maxBlock) {
+        this.step = (double) inRate / outRate;
+        this.cutoff = Math.min(1.0, 1.0 / step) * 0.97;
+        this.halfWidth = ZERO_CROSSINGS / cutoff;
+        int tableSize = (int) Math.ceil(halfWidth * TABLE_RESOLUTION) + 2;
+        this.table = new float[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            double x = (double) i / TABLE_RESOLUTION;
+            table[i] = (float) (cutoff * sinc(cutoff * x) * blackman(x / halfWidth));
+        }
+        int margin = (int) Math.ceil(halfWidth) + 2;
+        this.history = new float[maxBlock + margin * 2];
+        this.out = new float[(int) Math.ceil(maxBlock / step) + 4];
+        this.historyLen = margin;
+        this.pos = margin;
+    }
+
+    public boolean isPassThrough() {
+        return step == 1.0;
+    }
+
+    private static double sinc(double x) {
+        if (Math.abs(x) < 1e-9) return 1.0;
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    private static double blackman(double t) {
+        if (t >= 1.0) return 0;
+        double a = Math.PI * (t + 1);
+        return 0.42 - 0.5 * Math.cos(a) + 0.08 * Math.cos(2 * a);
+    }
+
+    private float kernel(double x) {
+        double ax = Math.abs(x) * TABLE_RESOLUTION;
+        int i = (int) ax;
+        if (i + 1 >= table.length) return 0;
+        float frac = (float) (ax - i);
+        return table[i] + (table[i + 1] - table[i]) * frac;
+    }
+
+    public void process(float[] in, int count, Output output) throws IOException {
+        if (isPassThrough()) {
+            output.write(in, count);
+            return;
+        }
+        int offset = 0;
+        while (offset < count) {
+            int n = Math.min(count - offset, history.length - historyLen);
+            System.arraycopy(in, offset, history, historyLen, n);
+            historyLen += n;
+            offset += n;
+            drain(output);
+        }
+    }
+
+    private void drain(Output output) throws IOException {
+        int produced = 0;
+        while (pos + halfWidth < historyLen - 1 && produced < out.length) {
+            int first = (int) Math.ceil(pos - halfWidth);
+            int last = (int) Math.floor(pos + halfWidth);
+            double sum = 0;
+            for (int k = Math.max(0, first); k <= last; k++) {
+                sum += history[k] * kernel(pos - k);
+            }
+            out[produced++] = (float) sum;
+            pos += step;
+        }
+        if (produced > 0) output.write(out, produced);
+        int keepFrom = Math.max(0, (int) Math.floor(pos - halfWidth) - 1);
+        if (keepFrom > 0) {
+            historyLen -= keepFrom;
+            System.arraycopy(history, keepFrom, history, 0, historyLen);
+            pos -= keepFrom;
+        }
+    }
+
+    public void flush(Output output) throws IOException {
+        if (isPassThrough()) return;
+        int tail = (int) Math.ceil(halfWidth) + 2;
+        float[] zeros = new float[Math.min(tail, history.length)];
+        while (tail > 0) {
+            int n = Math.min(tail, zeros.length);
+            process(zeros, n, output);
+            tail -= n;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.cherry.sme.tts.audiopack;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+public class WavInput implements Closeable {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final DataInputStream in;
+    private final byte[] frameBuffer;
+    private int sampleRate;
+    private int channels;
+    private int bitsPerSample;
+    private int encoding;
+    private long remaining;
+
+    public WavInput(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            readHeader();
+        } catch (IOException e) {
+            in.close();
+            throw new IOException(file.getName() + ": " + e.getMessage(), e);
+        }
+        frameBuffer = new byte[4096 * channels * (bitsPerSample / 8)];
+    }
+
+    private void readHeader() throws IOException {
+        byte[] tag = new byte[4];
+        in.readFully(tag);
+        if (!"RIFF".equals(new String(tag, "US-ASCII"))) throw new IOException("not a RIFF file");
+        readIntLE();
+        in.readFully(tag);
+        if (!"WAVE".equals(new String(tag, "US-ASCII"))) throw new IOException("not a WAVE file");
+        while (true) {
+            in.readFully(tag);
+            long size = readIntLE() & 0xFFFFFFFFL;
+            String id = new String(tag, "US-ASCII");
+            if ("fmt ".equals(id)) {
+                encoding = readShortLE();
+                channels = readShortLE();
+                sampleRate = readIntLE();
+                readIntLE();
+                readShortLE();
+                bitsPerSample = readShortLE();
+                long consumed = 16;
+                if (encoding == FORMAT_EXTENSIBLE && size >= 40) {
+                    readShortLE();
+                    readShortLE();
+                    readIntLE();
+                    encoding = readShortLE();
+                    consumed += 10;
+                }
+                skip(size - consumed + (size & 1));
+            } else if ("data".equals(id)) {
+                remaining = size == 0 || size == 0xFFFFFFFFL ? Long.MAX_VALUE : size;
+                break;
+            } else {
+                skip(size + (size & 1));
+            }
+        }
+        if (channels < 1 || sampleRate <= 0) throw new IOException("missing fmt chunk");
+        boolean supported = (encoding == FORMAT_PCM && (bitsPerSample == 8 || bitsPerSample == 16
+                || bitsPerSample == 24 || bitsPerSample == 32))
+                || (encoding == FORMAT_FLOAT && bitsPerSample == 32);
+        if (!supported) throw new IOException("unsupported encoding " + encoding + "/" + bitsPerSample + "bit");
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int read(float[] mono, int max) throws IOException {
+        int frameBytes = channels * (bitsPerSample / 8);
+        int frames = (int) Math.min(Math.min(max, frameBuffer.length / frameBytes), remaining / frameBytes);
+        if (frames <= 0) return -1;
+        int want = frames * frameBytes;
+        int got = 0;
+        while (got < want) {
+            int n = in.read(frameBuffer, got, want - got);
+            if (n < 0) break;
+            got += n;
+        }
+        frames = got / frameBytes;
+        remaining -= got;
+        if (frames == 0) return -1;
+        int o = 0;
+        for (int f = 0; f < frames; f++) {
+            float sum = 0;
+            for (int ch = 0; ch < channels; ch++) {
+                sum += sample(o);
+                o += bitsPerSample / 8;
+            }
+            mono[f] = sum / channels;
+        }
+        return frames;
+    }
+
+    private float sample(int o) {
+        byte[] b = frameBuffer;
+        switch (bitsPerSample) {
+            case 8:
+                return ((b[o] & 0xFF) - 128) / 128f;
+            case 16:
+                return (short) ((b[o] & 0xFF) | (b[o + 1] << 8)) / 32768f;
+            case 24:
+                return ((b[o] & 0xFF) | ((b[o + 1] & 0xFF) << 8) | (b[o + 2] << 16)) / 8388608f;
+            default:
+                int bits = (b[o] & 0xFF) | ((b[o + 1] & 0xFF) << 8) | ((b[o + 2] & 0xFF) << 16) | (b[o + 3] << 24);
+                return encoding == FORMAT_FLOAT ? Float.intBitsToFloat(bits) : bits / 2147483648f;
+        }
+    }
+
+    private int readIntLE() throws IOException {
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        int b2 = in.readUnsignedByte();
+        int b3 = in.readUnsignedByte();
+        return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+    }
+
+    private int readShortLE() throws IOException {
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        return b0 | (b1 << 8);
+    }
+
+    private void skip(long n) throws IOException {
+        while (n > 0) {
+            long s = in.skip(n);
+            if (s <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                s = 1;
+            }
+            n -= s;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
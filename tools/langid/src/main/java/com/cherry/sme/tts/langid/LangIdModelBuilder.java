@@ -0,0 +1,211 @@
+package com.cherry.sme.tts.langid;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+public class LangIdModelBuilder {
+
+    public static final int MAGIC = 0x4C4E4944;
+    public static final int VERSION = 1;
+    public static final int LABEL_SIZE = 8;
+    public static final int MAX_LANGS = 4;
+    public static final char BOUNDARY = '\u0002';
+    private static final double ALPHA = 0.5;
+    private static final int HOLDOUT_EVERY = 10;
+
+    private final int bucketBits;
+    private final int scale;
+    private final List<String> labels = new ArrayList<>();
+    private final List<long[]> counts = new ArrayList<>();
+    private final List<List<String>> heldOut = new ArrayList<>();
+
+    public LangIdModelBuilder(int bucketBits, int scale) {
+        this.bucketBits = bucketBits;
+        this.scale = scale;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File out = new File("app/src/main/assets/langid.bin");
+        int bucketBits = 16;
+        int scale = 256;
+        List<String[]> corpora = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (i + 1 >= args.length) usage();
+            if ("--corpus".equals(a) && args[i + 1].indexOf('=') > 0) {
+                String spec = args[++i];
+                corpora.add(new String[]{spec.substring(0, spec.indexOf('=')), spec.substring(spec.indexOf('=') + 1)});
+            } else if ("--out".equals(a)) out = new File(args[++i]);
+            else if ("--bucket-bits".equals(a)) bucketBits = parseInt(args[++i]);
+            else if ("--scale".equals(a)) scale = parseInt(args[++i]);
+            else {
+                usage();
+            }
+        }
+        if (corpora.size() < 2 || corpora.size() > MAX_LANGS || bucketBits < 8 || bucketBits > 20) usage();
+        LangIdModelBuilder builder = new LangIdModelBuilder(bucketBits, scale);
+        for (String[] corpus : corpora) {
+            long runs = builder.addCorpus(corpus[0], new File(corpus[1]));
+            System.out.println(corpus[0] + ": " + runs + " training runs from " + corpus[1]);
+        }
+        short[] table = builder.buildTable();
+        builder.write(table, out);
+        System.out.println("Wrote " + out + " (" + out.length() / 1024 + " KB, " + (1 << bucketBits) + " buckets)");
+        builder.evaluate(table);
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            usage();
+            return -1;
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: langid --corpus LABEL=FILE --corpus LABEL=FILE [...] [--out FILE]"
+                + " [--bucket-bits N] [--scale N]");
+        System.err.println("Labels: SHAN, MYANMAR (required), MON");
+        System.exit(2);
+    }
+
+    public static int hash(int a, int b, int c) {
+        int h = (a * 0x01000193) ^ b;
+        h = (h * 0x01000193) ^ c;
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 15);
+    }
+
+    static boolean isMyanmarBlock(char c) {
+        return (c >= '\u1000' && c <= '\u109F') || (c >= '\uAA60' && c <= '\uAA7F');
+    }
+
+    public long addCorpus(String label, File file) throws IOException {
+        if (label.length() > LABEL_SIZE) throw new IOException("label too long: " + label);
+        long[] table = new long[(1 << bucketBits) + 1];
+        List<String> held = new ArrayList<>();
+        long runs = 0;
+        int lineNo = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean hold = ++lineNo % HOLDOUT_EVERY == 0;
+                int i = 0;
+                int len = line.length();
+                while (i < len) {
+                    if (!isMyanmarBlock(line.charAt(i))) {
+                        i++;
+                        continue;
+                    }
+                    int start = i;
+                    while (i < len && isMyanmarBlock(line.charAt(i))) i++;
+                    if (hold) {
+                        held.add(line.substring(start, i));
+                    } else {
+                        count(line, start, i, table);
+                        runs++;
+                    }
+                }
+            }
+        }
+        labels.add(label);
+        counts.add(table);
+        heldOut.add(held);
+        return runs;
+    }
+
+    private void count(CharSequence text, int start, int end, long[] table) {
+        int mask = (1 << bucketBits) - 1;
+        int a = BOUNDARY;
+        int b = BOUNDARY;
+        for (int i = start; i <= end; i++) {
+            int c = i < end ? text.charAt(i) : BOUNDARY;
+            table[hash(a, b, c) & mask]++;
+            table[table.length - 1]++;
+            a = b;
+            b = c;
+        }
+    }
+
+    public short[] buildTable() {
+        int buckets = 1 << bucketBits;
+        int langs = labels.size();
+        short[] table = new short[buckets * langs];
+        for (int l = 0; l < langs; l++) {
+            long[] c = counts.get(l);
+            double denom = c[buckets] + ALPHA * buckets;
+            for (int b = 0; b < buckets; b++) {
+                long v = Math.round(Math.log((c[b] + ALPHA) / denom) * scale);
+                table[b * langs + l] = (short) Math.max(Short.MIN_VALUE, Math.min(0, v));
+            }
+        }
+        return table;
+    }
+
+    public void write(short[] table, File file) throws IOException {
+        int langs = labels.size();
+        ByteBuffer buf = ByteBuffer.allocate(20 + langs * LABEL_SIZE + table.length * 2 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(langs).putInt(bucketBits).putInt(scale);
+        for (String label : labels) {
+            byte[] name = new byte[LABEL_SIZE];
+            byte[] ascii = label.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(ascii, 0, name, 0, ascii.length);
+            buf.put(name);
+        }
+        for (short v : table) buf.putShort(v);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) throw new IOException("cannot create " + parent);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buf.array());
+        }
+        if (file.exists() && !file.delete()) throw new IOException("cannot replace " + file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+    }
+
+    public void evaluate(short[] table) {
+        int langs = labels.size();
+        int mask = (1 << bucketBits) - 1;
+        long[] scores = new long[langs];
+        for (int l = 0; l < langs; l++) {
+            List<String> runs = heldOut.get(l);
+            int correct = 0;
+            for (String run : runs) {
+                Arrays.fill(scores, 0);
+                int a = BOUNDARY;
+                int b = BOUNDARY;
+                for (int i = 0; i <= run.length(); i++) {
+                    int c = i < run.length() ? run.charAt(i) : BOUNDARY;
+                    int base = (hash(a, b, c) & mask) * langs;
+                    for (int k = 0; k < langs; k++) scores[k] += table[base + k];
+                    a = b;
+                    b = c;
+                }
+                int best = 0;
+                for (int k = 1; k < langs; k++) if (scores[k] > scores[best]) best = k;
+                if (best == l) correct++;
+            }
+            if (!runs.isEmpty()) {
+                System.out.println(String.format(Locale.US, "%s: held-out run accuracy %.1f%% (%d/%d, model only)",
+                        labels.get(l), correct * 100.0 / runs.size(), correct, runs.size()));
+            }
+        }
+    }
+}